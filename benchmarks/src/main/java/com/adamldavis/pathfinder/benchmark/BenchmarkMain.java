@@ -0,0 +1,71 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder.benchmark;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached and prints one line per
+ * engine, grid family and size with the throughput, the average latency, the
+ * bytes allocated per query and the length of the path that was found.
+ * Takes the usual JMH command line options, for example
+ * <code>java -jar benchmarks.jar LargeGrid -p family=MAZE</code>.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class BenchmarkMain
+{
+
+    private static final String ALLOC = "gc.alloc.rate.norm";
+
+    public static void main( String[] args ) throws Exception
+    {
+        CommandLineOptions cmd = new CommandLineOptions( args );
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent( cmd );
+        if ( cmd.getIncludes().isEmpty() ) builder.include( "Benchmark" );
+        Options options = builder.addProfiler( GCProfiler.class ).build();
+
+        Collection<RunResult> results = new Runner( options ).run();
+
+        System.out.println();
+        System.out.println( String.format( "%-8s %-15s %6s %-6s %-5s %14s %-10s %14s %8s", "engine",
+                "family", "size", "packed", "mode", "score", "unit", "bytes/query", "length" ) );
+        for ( RunResult run : results )
+        {
+            BenchmarkParams params = run.getParams();
+            Engine engine = Engine.valueOf( params.getParam( "engine" ) );
+            GridFamily family = GridFamily.valueOf( params.getParam( "family" ) );
+            int size = Integer.parseInt( params.getParam( "size" ) );
+            boolean packed = Boolean.parseBoolean( params.getParam( "packed" ) );
+            Result primary = run.getPrimaryResult();
+            Map<String, Result> secondary = run.getSecondaryResults();
+            Result alloc = secondary.get( ALLOC );
+
+            System.out.println( String.format( "%-8s %-15s %6d %-6s %-5s %14.3f %-10s %14s %8s", engine, family,
+                    size, packed, params.getMode().shortLabel(), primary.getScore(), primary.getScoreUnit(),
+                    alloc == null ? "-" : String.format( "%.0f", alloc.getScore() ), pathLength( engine,
+                            family, size, packed ) ) );
+        }
+    }
+
+    /**
+     * Runs the benchmarked query once more to report the length of the path,
+     * or "none" if no path was found.
+     */
+    static String pathLength( Engine engine, GridFamily family, int size, boolean packed )
+    {
+        int[] path = engine.create().findPath( family.make( size, size, packed ), 0, 0, size - 1, size - 1 );
+        return path == null ? "none" : String.valueOf( path.length );
+    }
+
+}//BenchmarkMain
@@ -0,0 +1,110 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder.benchmark;
+
+import com.adamldavis.pathfinder.AStarPathFinder;
+import com.adamldavis.pathfinder.AntPathFinder;
+import com.adamldavis.pathfinder.BidirectionalPathFinder;
+import com.adamldavis.pathfinder.CrudePathFinder;
+import com.adamldavis.pathfinder.DialPathFinder;
+import com.adamldavis.pathfinder.HierarchicalPathFinder;
+import com.adamldavis.pathfinder.JumpPointPathFinder;
+import com.adamldavis.pathfinder.PathFinder;
+import com.adamldavis.pathfinder.RandomPathFinder;
+import com.adamldavis.pathfinder.ThetaStarPathFinder;
+
+/**
+ * The PathFinder implementations under benchmark. One finder is created per
+ * trial and reused for every query, so finders that prepare a grid once (like
+ * HPA) are measured on the queries. Finders that honor the maximum distance
+ * get an unlimited one, since maze paths on the large grids are longer than
+ * the default.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public enum Engine
+{
+    ANT
+    {
+        public PathFinder create()
+        {
+            return new AntPathFinder();
+        }
+    },
+    CRUDE
+    {
+        public PathFinder create()
+        {
+            return new CrudePathFinder();
+        }
+    },
+    CRUDE_COMPACT
+    {
+        public PathFinder create()
+        {
+            CrudePathFinder finder = new CrudePathFinder();
+            finder.setCompact( true );
+            return finder;
+        }
+    },
+    RANDOM
+    {
+        public PathFinder create()
+        {
+            return new RandomPathFinder();
+        }
+    },
+    RANDOM_PARALLEL
+    {
+        public PathFinder create()
+        {
+            RandomPathFinder finder = new RandomPathFinder();
+            finder.setParallelism( 4 );
+            return finder;
+        }
+    },
+    ASTAR
+    {
+        public PathFinder create()
+        {
+            return new AStarPathFinder( Integer.MAX_VALUE );
+        }
+    },
+    JPS
+    {
+        public PathFinder create()
+        {
+            return new JumpPointPathFinder( Integer.MAX_VALUE );
+        }
+    },
+    BIDI
+    {
+        public PathFinder create()
+        {
+            return new BidirectionalPathFinder( Integer.MAX_VALUE );
+        }
+    },
+    DIAL
+    {
+        public PathFinder create()
+        {
+            return new DialPathFinder();
+        }
+    },
+    THETA
+    {
+        public PathFinder create()
+        {
+            return new ThetaStarPathFinder( Integer.MAX_VALUE );
+        }
+    },
+    HPA
+    {
+        public PathFinder create()
+        {
+            return new HierarchicalPathFinder();
+        }
+    };
+
+    public abstract PathFinder create();
+
+}//Engine
@@ -0,0 +1,68 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adamldavis.pathfinder.PathFinder;
+import com.adamldavis.pathfinder.PathGrid;
+
+/**
+ * Runs every engine corner to corner over every grid family on the small
+ * grids. The exhaustive engines copy the whole grid per step, so only the
+ * engines listed in {@link LargeGridBenchmark} are run on the big grids.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( { Mode.Throughput, Mode.AverageTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FindPathBenchmark
+{
+
+    @Param( { "ANT", "CRUDE", "CRUDE_COMPACT", "RANDOM", "RANDOM_PARALLEL", "ASTAR", "JPS", "BIDI", "DIAL", "THETA", "HPA" } )
+    public Engine engine;
+
+    @Param( { "OPEN", "RANDOM_10", "RANDOM_20", "RANDOM_30", "MAZE", "ROOMS", "BLOCKED_MIDDLE" } )
+    public GridFamily family;
+
+    @Param( { "12", "32", "64" } )
+    public int size;
+
+    /** Whether the grid is a BitPathGrid instead of a SimplePathGrid. */
+    @Param( { "false" } )
+    public boolean packed;
+
+    private PathGrid grid;
+
+    private PathFinder finder;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        grid = family.make( size, size, packed );
+        finder = engine.create();
+    }
+
+    @Benchmark
+    public int[] findPath()
+    {
+        return finder.findPath( grid, 0, 0, size - 1, size - 1 );
+    }
+
+}//FindPathBenchmark
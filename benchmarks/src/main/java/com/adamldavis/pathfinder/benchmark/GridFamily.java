@@ -0,0 +1,193 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder.benchmark;
+
+import java.util.Random;
+
+import com.adamldavis.pathfinder.BitPathGrid;
+import com.adamldavis.pathfinder.PathGrid;
+import com.adamldavis.pathfinder.SimplePathGrid;
+
+/**
+ * Seeded generators for the kinds of grids the finders are benchmarked on.
+ * Every generated grid keeps the top-left and bottom-right corners free since
+ * those are the start and goal of the benchmark query.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public enum GridFamily
+{
+    /** No obstacles at all. */
+    OPEN
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+        }
+    },
+    /** 10% of the cells are obstacles. */
+    RANDOM_10
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            scatter( bb, random, 0.10 );
+        }
+    },
+    /** 20% of the cells are obstacles. */
+    RANDOM_20
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            scatter( bb, random, 0.20 );
+        }
+    },
+    /** 30% of the cells are obstacles. */
+    RANDOM_30
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            scatter( bb, random, 0.30 );
+        }
+    },
+    /** A perfect maze of one cell wide corridors. */
+    MAZE
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            maze( bb, random );
+        }
+    },
+    /** Square rooms with one door in every wall. */
+    ROOMS
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            rooms( bb, random, 16 );
+        }
+    },
+    /** Everything blocked except the top row and the outer columns. */
+    BLOCKED_MIDDLE
+    {
+        void fill( boolean[][] bb, Random random )
+        {
+            int w = bb.length;
+            int h = bb[0].length;
+            for ( int x = 1; x < w - 1; x++ )
+                for ( int y = 1; y < h; y++ )
+                    bb[x][y] = true;
+        }
+    };
+
+    /** Seed used when none is given, so that runs are comparable. */
+    public static final long DEFAULT_SEED = 20120502L;
+
+    abstract void fill( boolean[][] bb, Random random );
+
+    public PathGrid make( int w, int h )
+    {
+        return make( w, h, DEFAULT_SEED );
+    }
+
+    /**
+     * Makes the grid with the default seed, as a BitPathGrid if packed.
+     */
+    public PathGrid make( int w, int h, boolean packed )
+    {
+        PathGrid grid = make( w, h, DEFAULT_SEED );
+        return packed ? new BitPathGrid( grid ) : grid;
+    }
+
+    public PathGrid make( int w, int h, long seed )
+    {
+        boolean[][] bb = new boolean[w][h];
+        fill( bb, new Random( seed ) );
+        bb[0][0] = false;
+        bb[w - 1][h - 1] = false;
+        return new SimplePathGrid( bb );
+    }
+
+    static void scatter( boolean[][] bb, Random random, double density )
+    {
+        for ( int x = 0; x < bb.length; x++ )
+            for ( int y = 0; y < bb[0].length; y++ )
+                bb[x][y] = random.nextDouble() < density;
+    }
+
+    /**
+     * Carves a maze with an iterative depth-first search. The corridors are on
+     * the even coordinates, and the goal corner is joined to the nearest one.
+     */
+    static void maze( boolean[][] bb, Random random )
+    {
+        int w = bb.length;
+        int h = bb[0].length;
+        int cw = ( w + 1 ) / 2;
+        int ch = ( h + 1 ) / 2;
+        for ( int x = 0; x < w; x++ )
+            for ( int y = 0; y < h; y++ )
+                bb[x][y] = true;
+
+        boolean[] seen = new boolean[cw * ch];
+        int[] stack = new int[cw * ch];
+        int top = 0;
+        int[] dirs = new int[4];
+        stack[top++] = 0;
+        seen[0] = true;
+        bb[0][0] = false;
+        while ( top > 0 )
+        {
+            int c = stack[top - 1];
+            int cx = c % cw;
+            int cy = c / cw;
+            int n = 0;
+            if ( cy > 0 && !seen[c - cw] ) dirs[n++] = 0;
+            if ( cx < cw - 1 && !seen[c + 1] ) dirs[n++] = 1;
+            if ( cy < ch - 1 && !seen[c + cw] ) dirs[n++] = 2;
+            if ( cx > 0 && !seen[c - 1] ) dirs[n++] = 3;
+            if ( n == 0 )
+            {
+                top--;
+                continue;
+            }
+            int dir = dirs[random.nextInt( n )];
+            int nx = cx + ( dir == 1 ? 1 : dir == 3 ? -1 : 0 );
+            int ny = cy + ( dir == 2 ? 1 : dir == 0 ? -1 : 0 );
+            bb[cx + nx][cy + ny] = false; // the wall between the two cells.
+            bb[2 * nx][2 * ny] = false;
+            seen[ny * cw + nx] = true;
+            stack[top++] = ny * cw + nx;
+        }
+        int ex = ( w - 1 ) & ~1;
+        int ey = ( h - 1 ) & ~1;
+        for ( int x = ex; x < w; x++ )
+            bb[x][h - 1] = false;
+        for ( int y = ey; y < h; y++ )
+            bb[ex][y] = false;
+    }
+
+    /**
+     * Divides the grid into rooms of the given size with a door at a random
+     * position in each wall.
+     */
+    static void rooms( boolean[][] bb, Random random, int room )
+    {
+        int w = bb.length;
+        int h = bb[0].length;
+        for ( int x = room; x < w; x += room )
+            for ( int y = 0; y < h; y++ )
+                bb[x][y] = true;
+        for ( int y = room; y < h; y += room )
+            for ( int x = 0; x < w; x++ )
+                bb[x][y] = true;
+        for ( int x = room; x < w; x += room )
+            for ( int y = 0; y < h; y += room )
+                door( bb, x, y + 1 + random.nextInt( room - 1 ), w, h );
+        for ( int y = room; y < h; y += room )
+            for ( int x = 0; x < w; x += room )
+                door( bb, x + 1 + random.nextInt( room - 1 ), y, w, h );
+    }
+
+    private static void door( boolean[][] bb, int x, int y, int w, int h )
+    {
+        if ( x < w && y < h ) bb[x][y] = false;
+    }
+
+}//GridFamily
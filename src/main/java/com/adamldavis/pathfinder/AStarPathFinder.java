@@ -0,0 +1,168 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * A* search with the Manhattan distance, which always finds a shortest path.
+ * Cells are numbered y * width + x and all of the search state is kept in
+ * flat primitive arrays: the g-scores, the direction each cell was entered
+ * from and an indexed binary heap for the open list.
+ * <BR>
+ * It is thread-safe: the arrays come from a pool kept per thread, so one
+ * instance can serve many threads and, with a PathBuffer, a query does not
+ * allocate.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class AStarPathFinder extends PathFinder
+{
+
+    public AStarPathFinder()
+    {
+        super();
+    }
+
+    /**
+     * Initializes this pathfinder with a maximum possible distance for a path.
+     * @param maxDistance Maximum possible distance of a path in the grid.
+     */
+    public AStarPathFinder( int maxDistance )
+    {
+        super( maxDistance );
+    }
+
+    /**
+     * Finds a shortest path given an array and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     * 
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return findPath( grid, x1, y1, x2, y2, out ) ? out.toArray() : null;
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        return found;
+    }
+
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        boolean stopped = limits.isStopped();
+        return new PathResult( found ? out.toArray() : null, found && stopped, stopped );
+    }
+
+    /**
+     * Writes the path into out and returns true, or returns false if there is
+     * none. If a limit is reached it writes a partial path instead.
+     */
+    private boolean search( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out, SearchStats st,
+            SearchLimits limits )
+    {
+        out.clear();
+        if ( grid == null || grid.getWidth() == 0 ) return false;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return false;
+        if ( x1 == x2 && y1 == y2 ) return true;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return false;
+
+        int w = grid.getWidth();
+        SearchScratch s = SearchScratch.acquire( cellCount( grid ) );
+        try
+        {
+            IndexedHeap open = s.heap;
+            int start = y1 * w + x1;
+            int goal = y2 * w + x2;
+            s.set( start, 0, -1 );
+            open.push( start, key( 0, x1, y1, x2, y2 ) );
+            int best = start;
+            int bestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( !open.isEmpty() )
+            {
+                int cur = open.poll();
+                if ( cur == goal )
+                {
+                    makePath( s, w, goal, out );
+                    return true;
+                }
+                int x = cur % w;
+                int y = cur / w;
+                if ( limits != null )
+                {
+                    int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+                    if ( h < bestH )
+                    {
+                        bestH = h;
+                        best = cur;
+                    }
+                    if ( limits.isReached( ++expanded ) )
+                    {
+                        makePath( s, w, best, out );
+                        return true;
+                    }
+                }
+                if ( st != null ) st.expand( this, x, y );
+                int ng = s.g[cur] + 1;
+                for ( int dir = 0; dir < 4; dir++ )
+                {
+                    int nx = x + DX[dir];
+                    int ny = y + DY[dir];
+                    if ( grid.getGrid( nx, ny ) ) continue;
+                    int next = ny * w + nx;
+                    if ( ng >= s.getG( next ) ) continue;
+                    int f = ng + Math.abs( x2 - nx ) + Math.abs( y2 - ny );
+                    if ( f > distance ) continue;
+                    s.set( next, ng, dir );
+                    open.push( next, key( ng, nx, ny, x2, y2 ) );
+                    if ( st != null ) st.generate( open.size() );
+                }
+            }
+            return false;
+        } finally
+        {
+            s.release();
+        }
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * Orders by f = g + h, breaking ties toward the goal (smaller h).
+     */
+    static long key( int g, int x, int y, int x2, int y2 )
+    {
+        int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+        return ( ( long ) ( g + h ) << 32 ) | h;
+    }
+
+    /**
+     * Follows the directions in the links back from the goal, the path has
+     * g[goal] steps.
+     */
+    static void makePath( SearchScratch s, int w, int goal, PathBuffer out )
+    {
+        out.setSize( s.g[goal] );
+        int[] ret = out.array();
+        int cur = goal;
+        for ( int i = out.size() - 1; i >= 0; i-- )
+        {
+            int dir = s.link[cur];
+            ret[i] = dir;
+            cur -= DY[dir] * w + DX[dir];
+        }
+    }
+
+}//AStarPathFinder
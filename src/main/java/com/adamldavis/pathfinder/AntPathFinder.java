@@ -1,13 +1,17 @@
 /** Copyright 2012, Adam L. Davis. All rights reserved. */
 package com.adamldavis.pathfinder;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Use this one, it's the best. It attempts to find a route in
  * the most direct way possible, and keeps a list of other possibilities
  * (ant babies) to fall-back on if the current path fails.
+ * <BR>
+ * One ant moves at a time, straight at the goal when it can. At each step it
+ * leaves babies going the other ways, and when it is stuck the oldest baby
+ * takes over. The babies wait in a ring of ints and share their paths'
+ * first steps, so making one costs the same however long its path is.
  * 
  * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
  * @version Version 2.0, May 2, 2012
@@ -17,8 +21,28 @@ public class AntPathFinder extends PathFinder
 
     private static final boolean bDEBUG = false;
 
-    // number of ants
-    private static final int MAX_SIZE = 1;
+    /** Parent of the first step. */
+    private static final int NONE = -1;
+
+    /**
+     * Steps of all the ants' paths: the direction of each and the step
+     * before it. An ant's path is its last step followed back to the start.
+     */
+    private int[] nodeDir = new int[64];
+
+    private int[] nodeParent = new int[64];
+
+    private int nodeCount;
+
+    /**
+     * Ring of the ants waiting their turn, three ints each: x, y and last
+     * step. Its capacity is a power of two.
+     */
+    private int[] babies = new int[3 * 64];
+
+    private int head;
+
+    private int count;
 
     public AntPathFinder()
     {
@@ -44,97 +68,179 @@ public class AntPathFinder extends PathFinder
      */
     public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
     {
-        int size = 0; //number of ants.
-        Path ret = null;
-        boolean done = false;
-        List ants = new ArrayList( 4 );
-        List babies = new ArrayList( 100 );
+        SearchStats st = beginSearch();
+        int[] path = search( grid, x1, y1, x2, y2, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, path == null ? -1 : path.length );
+        return path;
+    }
+
+    /**
+     * Stops when the limits are reached, with a partial path: the path of the
+     * ant that was moving. A budget counts the ants' steps.
+     */
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        SearchStats st = beginSearch();
+        int[] path = search( grid, x1, y1, x2, y2, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, path == null ? -1 : path.length );
+        boolean stopped = limits.isStopped();
+        return new PathResult( path, path != null && stopped, stopped );
+    }
+
+    private int[] search( PathGrid grid, int x1, int y1, int x2, int y2, SearchStats st, SearchLimits limits )
+    {
+        long steps = 0;
+        int ret = NONE; //node of the path found.
+        boolean found = false;
+        int[] order = new int[4];
 
         /* call the super. */
         if ( super.hasProblem( grid, x1, y1, x2, y2 ) ) return null;
 
         doneGrid.setGrid( x1, y1, true ); //set source as done.
 
-        if ( x1 == x2 && y1 == y2 )
+        if ( x1 == x2 && y1 == y2 ) return ( new int[0] );
+        nodeCount = 0;
+        head = 0;
+        count = 0;
+        // the moving ant.
+        boolean alive = true;
+        int x = x1;
+        int y = y1;
+        int node = NONE;
+        while ( true )
         {
-            return ( new int[0] );
-        } else
-        {
-            int[] order = makeOrder( x1, y1, x2, y2 );
-            //for (int i=0;i<4;i++) {
-            //ants.add(makeAnt(order[i],x1,y1,x2,y2));
-            //}
-            ants.add( makeAnt( order[0], x1, y1, x2, y2 ) );//<----
-        }
-        while ( !done )
-        {
-            size = ants.size();
+            if ( st != null ) st.iterations++;
             /*
-             * Add babies to ants.
+             * Take the oldest baby if the ant died.
              */
-            while ( size < MAX_SIZE && !babies.isEmpty() )
+            if ( !alive && count > 0 )
             {
-                ants.add( ( AdamAnt ) babies.remove( 0 ) ); //babies.size()-1
-                size++;
+                int b = head * 3;
+                x = babies[b];
+                y = babies[b + 1];
+                node = babies[b + 2];
+                head = ( head + 1 ) & ( babies.length / 3 - 1 );
+                count--;
+                alive = true;
             }
-            if ( bDEBUG ) System.out.println( "size= " + size );
-            if ( bDEBUG ) System.out.println( "babies= " + babies.size() );
-            if ( size == 0 ) break;
-            for ( int i = 0; i < size; i++ )
+            if ( bDEBUG ) System.out.println( "babies= " + count );
+            if ( !alive ) break;
+            if ( limits != null && limits.isReached( steps ) )
             {
-                AdamAnt a1 = null;
-                AdamAnt aa = ( AdamAnt ) ants.get( i );
-                int[] order = makeOrder( aa.getX(), aa.getY(), x2, y2 );
-
-                //Set the direction, remove this for nibbles-like behaviour.
-                aa.setDir( order[0] );
-                /*
-                 * Try to make ants going from this point in other directions.
-                 */
-                for ( int j = 0; j < 4; j++ )
-                {
-                    if ( order[j] != aa.getDir() )
-                    {
-                        a1 = ( AdamAnt ) aa.clone();
-                        a1.setDir( order[j] );
-                        if ( a1.move() ) babies.add( a1 );
-                    }
-                }
-                /*
-                 * Attempt to move. If can't move then remove it.
-                 */
-                if ( !aa.move() )
-                {
-                    ants.remove( i );
-                    size--;
-                }
-                /*
-                 * Check to see if we're finished.
-                 */
-                if ( aa.getX() == x2 && aa.getY() == y2 )
+                ret = node;
+                found = true;
+                break;
+            }
+            steps++;
+            makeOrder( x, y, x2, y2, order );
+            /*
+             * Try to make ants going from this point in other directions.
+             */
+            for ( int j = 1; j < 4; j++ )
+            {
+                int nx = x + DX[order[j]];
+                int ny = y + DY[order[j]];
+                if ( isOkay( nx, ny ) )
                 {
-                    done = true;
-                    ret = aa.getPath();
-                    break;
+                    doneGrid.setGrid( nx, ny, true );
+                    addBaby( nx, ny, addNode( order[j], node ) );
+                    if ( st != null ) st.generate( count );
                 }
-            }//i
+            }
+            /*
+             * Attempt to move straight at the goal. If can't move then it dies.
+             */
+            int nx = x + DX[order[0]];
+            int ny = y + DY[order[0]];
+            if ( isOkay( nx, ny ) )
+            {
+                doneGrid.setGrid( nx, ny, true ); //<--the space it's on.
+                x = nx;
+                y = ny;
+                node = addNode( order[0], node );
+                if ( st != null ) st.expand( this, x, y );
+            } else
+            {
+                alive = false;
+            }
+            /*
+             * Check to see if we're finished.
+             */
+            if ( x == x2 && y == y2 )
+            {
+                ret = node;
+                found = true;
+                break;
+            }
         }//while
-        if ( bDEBUG ) System.out.println( "ant.path = " + ret );
+        if ( !found ) return null;
+        return makePath( ret );
+    }
 
-        if ( ret == null )
-            return null;
-        else
-            return ( ret.getArray() );
+    private boolean isOkay( int x, int y )
+    {
+        return !mygrid.getGrid( x, y ) && !doneGrid.getGrid( x, y );
     }
 
-    private AdamAnt makeAnt( int i, int x1, int y1, int x2, int y2 )
+    /**
+     * Adds a step in the given direction after the parent step, and returns
+     * it.
+     */
+    private int addNode( int dir, int parent )
     {
-        return ( new AdamAnt( x1, y1, i, mygrid, doneGrid ) );
+        if ( nodeCount == nodeDir.length )
+        {
+            nodeDir = Arrays.copyOf( nodeDir, nodeCount * 2 );
+            nodeParent = Arrays.copyOf( nodeParent, nodeCount * 2 );
+        }
+        nodeDir[nodeCount] = dir;
+        nodeParent[nodeCount] = parent;
+        return nodeCount++;
     }
 
-    private int[] makeOrder( int x1, int y1, int x2, int y2 )
+    /**
+     * Adds an ant at the back of the queue, doubling the ring if it is full.
+     */
+    private void addBaby( int x, int y, int node )
+    {
+        int capacity = babies.length / 3;
+        if ( count == capacity )
+        {
+            int[] bigger = new int[babies.length * 2];
+            int first = ( capacity - head ) * 3;
+            System.arraycopy( babies, head * 3, bigger, 0, first );
+            System.arraycopy( babies, 0, bigger, first, head * 3 );
+            babies = bigger;
+            head = 0;
+            capacity *= 2;
+        }
+        int b = ( ( head + count ) & ( capacity - 1 ) ) * 3;
+        babies[b] = x;
+        babies[b + 1] = y;
+        babies[b + 2] = node;
+        count++;
+    }
+
+    /**
+     * The directions from the start to the given step.
+     */
+    private int[] makePath( int node )
+    {
+        int length = 0;
+        for ( int n = node; n != NONE; n = nodeParent[n] )
+            length++;
+        int[] path = new int[length];
+        for ( int n = node; n != NONE; n = nodeParent[n] )
+            path[--length] = nodeDir[n];
+        return path;
+    }
+
+    /**
+     * Puts the directions in ret, best first.
+     */
+    private static void makeOrder( int x1, int y1, int x2, int y2, int[] ret )
     {
-        int[] ret = new int[4];
         int xadd = 0;
         int yadd = 0;
         if ( Math.abs( x2 - x1 ) > Math.abs( y2 - y1 ) )
@@ -159,115 +265,6 @@ public class AntPathFinder extends PathFinder
             ret[1 - yadd] = 0;
             ret[2 + yadd] = 2;
         }
-        return ret;
     }
 
 }//END OF CLASS AntPathFinder
-
-class AdamAnt extends Path
-{
-
-    private static PathGrid mygrid;
-
-    private static PathGrid doneGrid;
-
-    int x = 0;
-
-    int y = 0;
-
-    int dir = 0;
-
-    public AdamAnt( int x, int y, int d, PathGrid mygrid, PathGrid dgrid )
-    {
-        super();
-        this.x = x;
-        this.y = y;
-        this.dir = d;
-        AdamAnt.mygrid = mygrid;
-        AdamAnt.doneGrid = dgrid;
-    }
-
-    public boolean move()
-    {
-        boolean moved = false;
-        int x1 = x;
-        int y1 = y;
-        switch ( dir ) {
-        case 0:
-            --y1;
-            break;
-        case 1:
-            ++x1;
-            break;
-        case 2:
-            ++y1;
-            break;
-        case 3:
-            --x1;
-            break;
-        default:
-        }
-        if ( isOkay( x1, y1 ) )
-        {
-            moved = true;
-            doneGrid.setGrid( x1, y1, true ); //<--the space it's on.
-            x = x1;
-            y = y1;
-            super.add( dir );
-        }
-        return moved;
-    }//move
-
-    protected boolean isOkay( int i, int j )
-    {
-        boolean okay = true;
-        if ( mygrid.getGrid( i, j ) || doneGrid.getGrid( i, j ) ) okay = false;
-        return okay;
-    }
-
-    public Object clone()
-    {
-        AdamAnt ant = new AdamAnt(x,y,dir,mygrid,doneGrid);
-	
-        for (int i=0; i < this.size(); i++)
-        {
-            ant.add(this.get(i));
-        }
-        return ant;
-    }
-
-    public void setDir( int d )
-    {
-        dir = d;
-    }
-
-    public int getDir()
-    {
-        return dir;
-    }
-
-    public int getX()
-    {
-        return x;
-    }
-
-    public int getY()
-    {
-        return y;
-    }
-
-    public void setX( int n )
-    {
-        x = n;
-    }
-
-    public void setY( int n )
-    {
-        y = n;
-    }
-
-    public Path getPath()
-    {
-        return ( Path ) this;
-    }
-}//AdamAnt
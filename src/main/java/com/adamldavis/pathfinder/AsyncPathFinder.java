@@ -0,0 +1,254 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the queries of a PathFinder on an executor and returns futures, so
+ * the caller's thread is not blocked while a long query runs. By default the
+ * queries run on virtual threads if the JVM has them (Java 21 and up),
+ * otherwise on a shared pool of daemon threads.
+ * <BR>
+ * At most a given number of queries run at once; the rest wait in a queue
+ * without holding a thread. Since each running query holds its working
+ * arrays (a few ints per cell of the grid), this bounds the memory used when
+ * many queries arrive together. A finder that is not thread-safe runs one
+ * query at a time. The working arrays are kept for the next query rather
+ * than with the thread, since a virtual thread runs only one.
+ * <BR>
+ * Cancelling a future removes the query from the queue, or if it is running
+ * cancels its SearchLimits. A finder that overrides findPath(grid, x1, y1,
+ * x2, y2, limits), as the finders of this package do, then stops at its next
+ * expansion and frees its arrays. One that does not only checks the limits
+ * before it starts, and runs to the end.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class AsyncPathFinder
+{
+
+    private final PathFinder finder;
+
+    private final Executor executor;
+
+    private final Semaphore permits;
+
+    private final int maxRunning;
+
+    private final ConcurrentLinkedQueue<Query> queue = new ConcurrentLinkedQueue<Query>();
+
+    /** Scratch pools of the queries that ran, at most one per running query. */
+    final ConcurrentLinkedQueue<SearchScratch[]> scratches = new ConcurrentLinkedQueue<SearchScratch[]>();
+
+    /**
+     * Runs on the default executor, at most one query per processor at once.
+     */
+    public AsyncPathFinder( PathFinder finder )
+    {
+        this( finder, defaultExecutor(), Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param executor
+     *            Runs the queries.
+     * @param maxRunning
+     *            Most queries running at once.
+     */
+    public AsyncPathFinder( PathFinder finder, Executor executor, int maxRunning )
+    {
+        if ( maxRunning < 1 ) throw new IllegalArgumentException( "maxRunning < 1" );
+        this.finder = finder;
+        this.executor = executor;
+        this.maxRunning = finder.isThreadSafe() ? maxRunning : 1;
+        this.permits = new Semaphore( this.maxRunning );
+    }
+
+    /**
+     * Finds a path in the background. The future gives the path as an array
+     * of directions, or null if there is none.
+     */
+    public CompletableFuture<int[]> findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        Query query = new Query( grid, x1, y1, x2, y2, new SearchLimits() );
+        queue.add( query );
+        drain();
+        return query;
+    }
+
+    /**
+     * Finds a path in the background within the given limits, see
+     * PathFinder.findPath(grid, x1, y1, x2, y2, limits).
+     */
+    public CompletableFuture<PathResult> findPath( PathGrid grid, int x1, int y1, int x2, int y2,
+            SearchLimits limits )
+    {
+        final Query query = new Query( grid, x1, y1, x2, y2, limits );
+        final CompletableFuture<PathResult> result = new CompletableFuture<PathResult>()
+        {
+            public boolean cancel( boolean mayInterruptIfRunning )
+            {
+                query.cancel( mayInterruptIfRunning );
+                return super.cancel( mayInterruptIfRunning );
+            }
+        };
+        query.result = result;
+        queue.add( query );
+        drain();
+        return result;
+    }
+
+    public PathFinder getFinder()
+    {
+        return finder;
+    }
+
+    /** Most queries running at once. */
+    public int getMaxRunning()
+    {
+        return maxRunning;
+    }
+
+    /** Queries waiting for their turn. */
+    public int getQueued()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Starts queued queries while there are permits for them.
+     */
+    private void drain()
+    {
+        while ( !queue.isEmpty() && permits.tryAcquire() )
+        {
+            Query query = queue.poll();
+            if ( query == null || query.isDone() )
+            {
+                permits.release();
+                continue;
+            }
+            try
+            {
+                executor.execute( query );
+            } catch ( RejectedExecutionException e )
+            {
+                permits.release();
+                query.fail( e );
+            }
+        }
+    }
+
+    /**
+     * One query. It is its own future when the plain path is asked for,
+     * otherwise it completes result with the whole PathResult.
+     */
+    private class Query extends CompletableFuture<int[]> implements Runnable
+    {
+
+        final PathGrid grid;
+
+        final int x1, y1, x2, y2;
+
+        final SearchLimits limits;
+
+        CompletableFuture<PathResult> result;
+
+        Query( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+        {
+            this.grid = grid;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.limits = limits;
+        }
+
+        public void run()
+        {
+            SearchScratch[] pool = scratches.poll();
+            if ( pool == null ) pool = SearchScratch.newPool();
+            SearchScratch[] old = SearchScratch.usePool( pool );
+            try
+            {
+                if ( isDone() ) return;
+                PathResult r = finder.findPath( grid, x1, y1, x2, y2, limits );
+                if ( result != null )
+                    result.complete( r );
+                else
+                    complete( r.getPath() );
+            } catch ( Throwable t )
+            {
+                fail( t );
+            } finally
+            {
+                SearchScratch.usePool( old );
+                scratches.add( pool );
+                permits.release();
+                drain();
+            }
+        }
+
+        public boolean cancel( boolean mayInterruptIfRunning )
+        {
+            queue.remove( this );
+            limits.cancel();
+            return super.cancel( mayInterruptIfRunning );
+        }
+
+        void fail( Throwable t )
+        {
+            if ( result != null )
+                result.completeExceptionally( t );
+            else
+                completeExceptionally( t );
+        }
+
+        public boolean isDone()
+        {
+            return super.isDone() || result != null && result.isDone();
+        }
+
+    }
+
+    private static Executor defaultExecutor()
+    {
+        return DefaultExecutor.EXECUTOR;
+    }
+
+    /** Made on first use. */
+    private static class DefaultExecutor
+    {
+
+        static final Executor EXECUTOR = create();
+
+        private static Executor create()
+        {
+            try
+            {
+                // Java 21 and up.
+                return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke(
+                        null );
+            } catch ( ReflectiveOperationException e )
+            {
+                return Executors.newCachedThreadPool( new ThreadFactory()
+                {
+                    public Thread newThread( Runnable r )
+                    {
+                        Thread t = new Thread( r, "pathfinder-async" );
+                        t.setDaemon( true );
+                        return t;
+                    }
+                } );
+            }
+        }
+
+    }
+
+}//AsyncPathFinder
@@ -0,0 +1,201 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many queries against one grid at once, split over the threads of a
+ * ForkJoinPool. The queries are given as one array of x1, y1, x2, y2 for
+ * each query. The grid is only read, and must not be changed while a batch
+ * is running.
+ * <BR>
+ * The queries are run in parallel only if the finder is thread-safe (see
+ * PathFinder.isThreadSafe()); each worker thread then has its own working
+ * arrays. Other finders run the batch one query at a time.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class BatchPathFinder
+{
+
+    /** Number of queries run by one task. */
+    private static final int BLOCK = 32;
+
+    private final PathFinder finder;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Uses the common ForkJoinPool.
+     */
+    public BatchPathFinder( PathFinder finder )
+    {
+        this( finder, ForkJoinPool.commonPool() );
+    }
+
+    public BatchPathFinder( PathFinder finder, ForkJoinPool pool )
+    {
+        this.finder = finder;
+        this.pool = pool;
+    }
+
+    public PathFinder getFinder()
+    {
+        return finder;
+    }
+
+    /**
+     * Finds the path of every query, null where no path is found.
+     * 
+     * @param queries
+     *            x1, y1, x2, y2 of each query.
+     */
+    public int[][] findPaths( PathGrid grid, int[] queries )
+    {
+        int[][] ret = new int[count( queries )][];
+        PathBuffer[] blocks = run( grid, queries );
+        for ( int b = 0; b < blocks.length; b++ )
+        {
+            int[] dirs = blocks[b].array();
+            int pos = 0;
+            for ( int i = b * BLOCK; i < ret.length && i < ( b + 1 ) * BLOCK; i++ )
+            {
+                int len = dirs[pos++];
+                if ( len < 0 ) continue;
+                ret[i] = new int[len];
+                System.arraycopy( dirs, pos, ret[i], 0, len );
+                pos += len;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the path of every query and packs them into one array.
+     * 
+     * @param queries
+     *            x1, y1, x2, y2 of each query.
+     */
+    public PackedPaths findPathsPacked( PathGrid grid, int[] queries )
+    {
+        int n = count( queries );
+        PathBuffer[] blocks = run( grid, queries );
+        int total = 0;
+        for ( int b = 0; b < blocks.length; b++ )
+            total += blocks[b].size();
+        total -= n; // the length in front of each path.
+
+        int[] directions = new int[Math.max( total, 0 )];
+        int[] offsets = new int[n + 1];
+        boolean[] found = new boolean[n];
+        int at = 0;
+        for ( int b = 0; b < blocks.length; b++ )
+        {
+            int[] dirs = blocks[b].array();
+            int pos = 0;
+            for ( int i = b * BLOCK; i < n && i < ( b + 1 ) * BLOCK; i++ )
+            {
+                int len = dirs[pos++];
+                offsets[i] = at;
+                if ( len < 0 ) continue;
+                found[i] = true;
+                System.arraycopy( dirs, pos, directions, at, len );
+                pos += len;
+                at += len;
+            }
+        }
+        offsets[n] = at;
+        return new PackedPaths( directions, offsets, found );
+    }
+
+    private static int count( int[] queries )
+    {
+        if ( queries.length % 4 != 0 )
+            throw new IllegalArgumentException( "queries must be x1, y1, x2, y2 for each query" );
+        return queries.length / 4;
+    }
+
+    /**
+     * Runs the queries in blocks. Each block's buffer holds, for each query,
+     * the path length (-1 if not found) followed by the path.
+     */
+    private PathBuffer[] run( PathGrid grid, int[] queries )
+    {
+        int n = count( queries );
+        PathBuffer[] blocks = new PathBuffer[( n + BLOCK - 1 ) / BLOCK];
+        if ( finder.isThreadSafe() )
+        {
+            pool.invoke( new Task( grid, queries, blocks, 0, blocks.length ) );
+        } else
+        {
+            synchronized ( finder )
+            {
+                PathBuffer path = new PathBuffer();
+                for ( int b = 0; b < blocks.length; b++ )
+                    blocks[b] = runBlock( grid, queries, b, path );
+            }
+        }
+        return blocks;
+    }
+
+    private PathBuffer runBlock( PathGrid grid, int[] queries, int b, PathBuffer path )
+    {
+        PathBuffer block = new PathBuffer();
+        int end = Math.min( queries.length, ( b + 1 ) * BLOCK * 4 );
+        for ( int q = b * BLOCK * 4; q < end; q += 4 )
+        {
+            if ( finder.findPath( grid, queries[q], queries[q + 1], queries[q + 2], queries[q + 3], path ) )
+            {
+                block.add( path.size() );
+                int[] dirs = path.array();
+                for ( int i = 0; i < path.size(); i++ )
+                    block.add( dirs[i] );
+            } else
+            {
+                block.add( -1 );
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Runs the blocks from lo up to hi, splitting in half until one is left.
+     */
+    private class Task extends RecursiveAction
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        final PathGrid grid;
+
+        final int[] queries;
+
+        final PathBuffer[] blocks;
+
+        final int lo;
+
+        final int hi;
+
+        Task( PathGrid grid, int[] queries, PathBuffer[] blocks, int lo, int hi )
+        {
+            this.grid = grid;
+            this.queries = queries;
+            this.blocks = blocks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute()
+        {
+            if ( hi - lo <= 1 )
+            {
+                if ( hi > lo ) blocks[lo] = runBlock( grid, queries, lo, new PathBuffer() );
+                return;
+            }
+            int mid = ( lo + hi ) >>> 1;
+            invokeAll( new Task( grid, queries, blocks, lo, mid ), new Task( grid, queries, blocks, mid, hi ) );
+        }
+    }
+
+}//BatchPathFinder
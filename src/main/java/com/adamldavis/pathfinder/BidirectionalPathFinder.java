@@ -0,0 +1,197 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Breadth-first search from the start and from the goal at the same time,
+ * which always finds a shortest path. Each turn the side with the smaller
+ * frontier expands one whole layer. Once a layer touches a cell the other
+ * side has reached, the best meeting point seen in that layer gives a
+ * shortest path and the search stops.
+ * <BR>
+ * For a long query each side only has to cover about half the distance, so
+ * about half as many cells are expanded as by one breadth-first search. It
+ * needs no heuristic, which helps on mazes where the Manhattan distance
+ * misleads A*. Like AStarPathFinder it is thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class BidirectionalPathFinder extends PathFinder
+{
+
+    public BidirectionalPathFinder()
+    {
+        super();
+    }
+
+    /**
+     * Initializes this pathfinder with a maximum possible distance for a path.
+     * @param maxDistance Maximum possible distance of a path in the grid.
+     */
+    public BidirectionalPathFinder( int maxDistance )
+    {
+        super( maxDistance );
+    }
+
+    /**
+     * Finds a shortest path given an array and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     *
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return findPath( grid, x1, y1, x2, y2, out ) ? out.toArray() : null;
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        return found;
+    }
+
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        boolean stopped = limits.isStopped();
+        return new PathResult( found ? out.toArray() : null, found && stopped, stopped );
+    }
+
+    /**
+     * Writes the path into out and returns true, or returns false if there is
+     * none. If a limit is reached it writes a partial path instead.
+     */
+    private boolean search( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out, SearchStats st,
+            SearchLimits limits )
+    {
+        out.clear();
+        if ( grid == null || grid.getWidth() == 0 ) return false;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return false;
+        if ( x1 == x2 && y1 == y2 ) return true;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return false;
+
+        int w = grid.getWidth();
+        int n = cellCount( grid );
+        int start = y1 * w + x1;
+        int goal = y2 * w + x2;
+        // the links are the directions each side moved in to reach a cell.
+        SearchScratch fs = SearchScratch.acquire( n );
+        SearchScratch bs = SearchScratch.acquire( n );
+        try
+        {
+            fs.set( start, 0, -1 );
+            bs.set( goal, 0, -1 );
+            fs.queue()[0] = start;
+            bs.queue()[0] = goal;
+            int fHead = 0, fTail = 1, bHead = 0, bTail = 1;
+            int best = Integer.MAX_VALUE;
+            int meetF = -1, meetB = -1, meetDir = -1;
+            int closest = start; // forward cell nearest the goal, for a partial path.
+            int closestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( fHead < fTail && bHead < bTail )
+            {
+                boolean forward = fTail - fHead <= bTail - bHead;
+                SearchScratch s = forward ? fs : bs;
+                SearchScratch other = forward ? bs : fs;
+                int[] queue = s.queue();
+                int head = forward ? fHead : bHead;
+                int tail = forward ? fTail : bTail;
+                int end = tail;
+                while ( head < end )
+                {
+                    int cur = queue[head++];
+                    int x = cur % w;
+                    int y = cur / w;
+                    if ( limits != null )
+                    {
+                        int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+                        if ( forward && h < closestH )
+                        {
+                            closestH = h;
+                            closest = cur;
+                        }
+                        if ( limits.isReached( ++expanded ) )
+                        {
+                            AStarPathFinder.makePath( fs, w, closest, out );
+                            return true;
+                        }
+                    }
+                    if ( st != null ) st.expand( this, x, y );
+                    int ng = s.g[cur] + 1;
+                    for ( int dir = 0; dir < 4; dir++ )
+                    {
+                        int nx = x + DX[dir];
+                        int ny = y + DY[dir];
+                        if ( grid.getGrid( nx, ny ) ) continue;
+                        int next = ny * w + nx;
+                        if ( other.isSet( next ) )
+                        {
+                            int len = ng + other.g[next];
+                            if ( len < best && len <= distance )
+                            {
+                                best = len;
+                                meetF = forward ? cur : next;
+                                meetB = forward ? next : cur;
+                                meetDir = forward ? dir : RandomPathFinder.oppositeDir( dir );
+                            }
+                        }
+                        if ( s.isSet( next ) || ng > distance ) continue;
+                        s.set( next, ng, dir );
+                        queue[tail++] = next;
+                        if ( st != null ) st.generate( tail - head + ( forward ? bTail - bHead : fTail - fHead ) );
+                    }
+                }
+                if ( forward )
+                {
+                    fHead = head;
+                    fTail = tail;
+                } else
+                {
+                    bHead = head;
+                    bTail = tail;
+                }
+                if ( best < Integer.MAX_VALUE )
+                {
+                    makePath( fs, bs, w, meetF, meetDir, meetB, out );
+                    return true;
+                }
+            }
+            return false;
+        } finally
+        {
+            bs.release();
+            fs.release();
+        }
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * Joins the start's half up to meetF, the step from meetF to meetB, and
+     * the goal's half walked backward from meetB.
+     */
+    private static void makePath( SearchScratch fs, SearchScratch bs, int w, int meetF, int dir, int meetB,
+            PathBuffer out )
+    {
+        AStarPathFinder.makePath( fs, w, meetF, out );
+        out.add( dir );
+        for ( int cur = meetB; bs.g[cur] > 0; )
+        {
+            int back = bs.link[cur];
+            out.add( RandomPathFinder.oppositeDir( back ) );
+            cur -= DY[back] * w + DX[back];
+        }
+    }
+
+}//BidirectionalPathFinder
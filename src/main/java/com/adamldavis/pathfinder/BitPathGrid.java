@@ -0,0 +1,167 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * BitPathGrid represents a boolean 2-dimensional grid packed into longs, one
+ * bit per cell. Each row starts on a new word so a row can be scanned a word
+ * at a time. It uses an eighth of the memory of a SimplePathGrid and copies a
+ * word at a time.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class BitPathGrid implements PathGrid
+{
+
+    private final long[] words;
+
+    private final int width;
+
+    private final int height;
+
+    /** Number of longs per row. */
+    private final int stride;
+
+    public BitPathGrid( int x, int y )
+    {
+        this( x, y, new long[( ( x + 63 ) >>> 6 ) * y] );
+    }
+
+    /**
+     * Copies the given grid, reading a SimplePathGrid's array directly.
+     */
+    public BitPathGrid( PathGrid grid )
+    {
+        this( grid.getWidth(), grid.getHeight() );
+        if ( grid instanceof SimplePathGrid )
+        {
+            boolean[][] g = ( ( SimplePathGrid ) grid ).getArray();
+            for ( int i = 0; i < width; i++ )
+                for ( int j = 0; j < height; j++ )
+                    if ( g[i][j] ) words[j * stride + ( i >>> 6 )] |= 1L << i;
+        } else
+        {
+            for ( int i = 0; i < width; i++ )
+                for ( int j = 0; j < height; j++ )
+                    if ( grid.getGrid( i, j ) ) words[j * stride + ( i >>> 6 )] |= 1L << i;
+        }
+    }
+
+    BitPathGrid( int x, int y, long[] words )
+    {
+        this.width = x;
+        this.height = y;
+        this.stride = ( x + 63 ) >>> 6;
+        this.words = words;
+    }
+
+    public boolean getGrid( int x, int y )
+    {
+        if ( x < 0 || y < 0 ) return true; //true means it is an obstacle.
+        if ( x >= width || y >= height ) return true;
+        return ( words[y * stride + ( x >>> 6 )] & ( 1L << x ) ) != 0;
+    }
+
+    public void setGrid( int x, int y, boolean yes )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height )
+            throw new ArrayIndexOutOfBoundsException( x + "," + y );
+        if ( yes )
+            words[y * stride + ( x >>> 6 )] |= 1L << x;
+        else
+            words[y * stride + ( x >>> 6 )] &= ~( 1L << x );
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /** Number of longs used for each row. */
+    public int getStride()
+    {
+        return stride;
+    }
+
+    /**
+     * Returns the given word of row y, bit i of word n is the cell at
+     * x = n * 64 + i. Bits past the width are always zero.
+     */
+    public long getWord( int y, int n )
+    {
+        return words[y * stride + n];
+    }
+
+    public PathGrid copy()
+    {
+        return new BitPathGrid( width, height, words.clone() );
+    }
+
+    /**
+     * Copies the cells of the given grid, which must be the same size, into
+     * this grid without allocating.
+     */
+    public void copyFrom( BitPathGrid grid )
+    {
+        if ( grid.width != width || grid.height != height )
+            throw new IllegalArgumentException( "grid is " + grid.width + "x" + grid.height );
+        System.arraycopy( grid.words, 0, words, 0, words.length );
+    }
+
+    /** Sets every cell to false. */
+    public void clear()
+    {
+        Arrays.fill( words, 0L );
+    }
+
+    /** Sets every cell to the given value. */
+    public void fill( boolean yes )
+    {
+        if ( !yes )
+        {
+            clear();
+            return;
+        }
+        Arrays.fill( words, -1L );
+        long last = width % 64 == 0 ? -1L : ( 1L << width ) - 1;
+        for ( int j = 0; j < height; j++ )
+            words[j * stride + stride - 1] = last;
+    }
+
+    public SimplePathGrid toSimplePathGrid()
+    {
+        boolean[][] g = new boolean[width][height];
+        for ( int j = 0; j < height; j++ )
+        {
+            int row = j * stride;
+            for ( int n = 0; n < stride; n++ )
+            {
+                long w = words[row + n];
+                while ( w != 0 )
+                {
+                    g[( n << 6 ) + Long.numberOfTrailingZeros( w )][j] = true;
+                    w &= w - 1;
+                }
+            }
+        }
+        return new SimplePathGrid( g );
+    }
+
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( ( width + 1 ) * height );
+        for ( int j = 0; j < height; j++ )
+        {
+            for ( int i = 0; i < width; i++ )
+                str.append( getGrid( i, j ) ? '#' : '-' );
+            str.append( '\n' );
+        }
+        return str.toString();
+    }
+}//BitPathGrid
@@ -0,0 +1,108 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A CostGrid keeping one unsigned byte per cell, row by row. As a PathGrid a
+ * cell of cost 0 is an obstacle; setGrid(x, y, false) gives an obstacle a
+ * cost of 1 and leaves other cells alone.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class ByteCostGrid implements CostGrid
+{
+
+    private final byte[] costs;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * A grid where every cell costs 1.
+     */
+    public ByteCostGrid( int x, int y )
+    {
+        this.width = x;
+        this.height = y;
+        this.costs = new byte[x * y];
+        Arrays.fill( costs, ( byte ) 1 );
+    }
+
+    /**
+     * Copies the given grid, with a cost of 1 for each free cell unless it is
+     * a CostGrid.
+     */
+    public ByteCostGrid( PathGrid grid )
+    {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.costs = new byte[width * height];
+        CostGrid cg = grid instanceof CostGrid ? ( CostGrid ) grid : null;
+        for ( int j = 0; j < height; j++ )
+            for ( int i = 0; i < width; i++ )
+                costs[j * width + i] = ( byte ) ( cg != null ? cg.getCost( i, j ) : grid.getGrid( i, j ) ? 0 : 1 );
+    }
+
+    public int getCost( int x, int y )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height ) return 0;
+        return costs[y * width + x] & 0xFF;
+    }
+
+    public void setCost( int x, int y, int cost )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height )
+            throw new ArrayIndexOutOfBoundsException( x + "," + y );
+        if ( cost < 0 || cost > MAX_COST ) throw new IllegalArgumentException( "cost " + cost );
+        costs[y * width + x] = ( byte ) cost;
+    }
+
+    public boolean getGrid( int x, int y )
+    {
+        return getCost( x, y ) == 0; //true means it is an obstacle.
+    }
+
+    public void setGrid( int x, int y, boolean yes )
+    {
+        if ( yes )
+            setCost( x, y, 0 );
+        else if ( getCost( x, y ) == 0 ) setCost( x, y, 1 );
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public PathGrid copy()
+    {
+        return new ByteCostGrid( this );
+    }
+
+    /**
+     * Shows obstacles as '#', cells of cost 1 as '-', costs up to 9 as their
+     * digit and higher costs as '+'.
+     */
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( ( width + 1 ) * height );
+        for ( int j = 0; j < height; j++ )
+        {
+            for ( int i = 0; i < width; i++ )
+            {
+                int cost = costs[j * width + i] & 0xFF;
+                str.append( cost == 0 ? '#' : cost == 1 ? '-' : cost <= 9 ? ( char ) ( '0' + cost ) : '+' );
+            }
+            str.append( '\n' );
+        }
+        return str.toString();
+    }
+
+}//ByteCostGrid
@@ -0,0 +1,418 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Wraps another PathFinder and remembers the paths it found, so that a query
+ * that was asked before (or the same query backward, from goal to start) is
+ * answered without searching. Queries with no path are remembered too.
+ * <BR>
+ * The cache holds at most a given number of paths and of steps in all of
+ * them, and drops the least recently used path to make room. It is emptied
+ * whenever a different grid is used or the grid changes. If the grid is an
+ * ObservablePathGrid its change count is used, otherwise every query hashes
+ * the whole grid (one long per 64 cells), so for large grids that change an
+ * ObservablePathGrid is much faster.
+ * <BR>
+ * The cache itself is thread-safe. A wrapped finder that is not thread-safe
+ * runs one query at a time.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class CachingPathFinder extends PathFinder
+{
+
+    public static final int DEFAULT_MAX_PATHS = 1024;
+
+    public static final int DEFAULT_MAX_STEPS = 1 << 20;
+
+    /** Stored for a query that has no path. */
+    private static final int[] NO_PATH = new int[0];
+
+    /** Largest x or y that fits in a key. */
+    private static final int MAX_COORD = 0xFFFF;
+
+    private final PathFinder finder;
+
+    private final int maxPaths;
+
+    private final int maxSteps;
+
+    /** Key of each entry. */
+    private final long[] keys;
+
+    /** Path of each entry. */
+    private final int[][] paths;
+
+    /** Entries in order of use, most recent first. */
+    private final int[] prev;
+
+    private final int[] next;
+
+    private int head = -1;
+
+    private int tail = -1;
+
+    /** Entries not in use. */
+    private final int[] free;
+
+    private int freeCount;
+
+    /** Open addressing table of entry + 1, or 0 where empty. */
+    private final int[] table;
+
+    private final int mask;
+
+    private int size;
+
+    private long steps;
+
+    /** The grid the paths were found on, and its version at the time. */
+    private PathGrid grid;
+
+    private long version;
+
+    private long hits;
+
+    private long reverseHits;
+
+    private long misses;
+
+    public CachingPathFinder( PathFinder finder )
+    {
+        this( finder, DEFAULT_MAX_PATHS, DEFAULT_MAX_STEPS );
+    }
+
+    /**
+     * @param maxPaths
+     *            Most paths kept at once.
+     * @param maxSteps
+     *            Most steps kept at once, in all of the paths.
+     */
+    public CachingPathFinder( PathFinder finder, int maxPaths, int maxSteps )
+    {
+        super();
+        if ( maxPaths < 1 ) throw new IllegalArgumentException( "maxPaths must be at least 1" );
+        this.finder = finder;
+        this.maxPaths = maxPaths;
+        this.maxSteps = maxSteps;
+        keys = new long[maxPaths];
+        paths = new int[maxPaths][];
+        prev = new int[maxPaths];
+        next = new int[maxPaths];
+        free = new int[maxPaths];
+        int n = Integer.highestOneBit( maxPaths * 2 - 1 ) << 1;
+        table = new int[n];
+        mask = n - 1;
+        clear();
+    }
+
+    public PathFinder getFinder()
+    {
+        return finder;
+    }
+
+    /**
+     * Finds a path given an array and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     *
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        if ( grid == null || grid.getWidth() == 0 ) return null;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return null;
+        if ( !fits( x1, y1, x2, y2 ) ) return delegate( grid, x1, y1, x2, y2 );
+        long key = key( x1, y1, x2, y2 );
+        long v = version( grid );
+        int[] path = lookup( grid, v, key, key( x2, y2, x1, y1 ) );
+        if ( path == NO_PATH ) return null;
+        if ( path != null ) return path.clone();
+        path = delegate( grid, x1, y1, x2, y2 );
+        store( grid, v, key, path == null ? NO_PATH : path.clone() );
+        return path;
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        out.clear();
+        if ( grid == null || grid.getWidth() == 0 ) return false;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return false;
+        if ( !fits( x1, y1, x2, y2 ) ) return delegate( grid, x1, y1, x2, y2, out );
+        long key = key( x1, y1, x2, y2 );
+        long v = version( grid );
+        int[] path = lookup( grid, v, key, key( x2, y2, x1, y1 ) );
+        if ( path == NO_PATH ) return false;
+        if ( path != null )
+        {
+            out.setSize( path.length );
+            System.arraycopy( path, 0, out.array(), 0, path.length );
+            return true;
+        }
+        boolean found = delegate( grid, x1, y1, x2, y2, out );
+        store( grid, v, key, found ? out.toArray() : NO_PATH );
+        return found;
+    }
+
+    /**
+     * Answers from the cache if it can, otherwise passes the limits on to the
+     * wrapped finder. Only a search that finished is remembered.
+     */
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        if ( grid == null || grid.getWidth() == 0 ) return new PathResult( null, false, false );
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return new PathResult( null, false, false );
+        if ( !fits( x1, y1, x2, y2 ) ) return delegate( grid, x1, y1, x2, y2, limits );
+        long key = key( x1, y1, x2, y2 );
+        long v = version( grid );
+        int[] path = lookup( grid, v, key, key( x2, y2, x1, y1 ) );
+        if ( path == NO_PATH ) return new PathResult( null, false, false );
+        if ( path != null ) return new PathResult( path.clone(), false, false );
+        PathResult result = delegate( grid, x1, y1, x2, y2, limits );
+        if ( !result.isStopped() )
+            store( grid, v, key, result.getPath() == null ? NO_PATH : result.getPath().clone() );
+        return result;
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /** Number of queries answered from the cache, backward ones included. */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /** Number of queries answered by reversing the path of the opposite query. */
+    public synchronized long getReverseHits()
+    {
+        return reverseHits;
+    }
+
+    /** Number of queries passed on to the wrapped finder. */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /** Number of paths kept. */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /** Drops every path. The counts are kept. */
+    public synchronized void clear()
+    {
+        Arrays.fill( table, 0 );
+        Arrays.fill( paths, null );
+        for ( int i = 0; i < maxPaths; i++ )
+            free[i] = maxPaths - 1 - i;
+        freeCount = maxPaths;
+        head = tail = -1;
+        size = 0;
+        steps = 0;
+    }
+
+    /**
+     * Returns the stored path of the query, or of the opposite query
+     * reversed, NO_PATH if there is no path, or null if neither is stored.
+     */
+    private synchronized int[] lookup( PathGrid grid, long version, long key, long reverse )
+    {
+        if ( grid != this.grid || version != this.version )
+        {
+            clear();
+            this.grid = grid;
+            this.version = version;
+        }
+        int e = indexOf( key );
+        if ( e >= 0 )
+        {
+            hits++;
+            touch( e );
+            return paths[e];
+        }
+        e = indexOf( reverse );
+        if ( e >= 0 )
+        {
+            hits++;
+            reverseHits++;
+            touch( e );
+            return paths[e] == NO_PATH ? NO_PATH : RandomPathFinder.reversePath( paths[e] );
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void store( PathGrid grid, long version, long key, int[] path )
+    {
+        // the grid may have changed while the path was found.
+        if ( grid != this.grid || version != this.version ) return;
+        if ( grid instanceof ObservablePathGrid && version( grid ) != version ) return;
+        if ( path.length > maxSteps || indexOf( key ) >= 0 ) return;
+        while ( size > 0 && ( freeCount == 0 || steps + path.length > maxSteps ) )
+            remove( tail );
+        int e = free[--freeCount];
+        keys[e] = key;
+        paths[e] = path;
+        prev[e] = -1;
+        next[e] = head;
+        if ( head >= 0 ) prev[head] = e;
+        head = e;
+        if ( tail < 0 ) tail = e;
+        int i = slot( key );
+        while ( table[i] != 0 )
+            i = ( i + 1 ) & mask;
+        table[i] = e + 1;
+        size++;
+        steps += path.length;
+    }
+
+    private int indexOf( long key )
+    {
+        for ( int i = slot( key ); table[i] != 0; i = ( i + 1 ) & mask )
+            if ( keys[table[i] - 1] == key ) return table[i] - 1;
+        return -1;
+    }
+
+    /** Moves the entry to the front of the list. */
+    private void touch( int e )
+    {
+        if ( e == head ) return;
+        unlink( e );
+        prev[e] = -1;
+        next[e] = head;
+        prev[head] = e;
+        head = e;
+    }
+
+    private void unlink( int e )
+    {
+        if ( prev[e] >= 0 )
+            next[prev[e]] = next[e];
+        else
+            head = next[e];
+        if ( next[e] >= 0 )
+            prev[next[e]] = prev[e];
+        else
+            tail = prev[e];
+    }
+
+    private void remove( int e )
+    {
+        unlink( e );
+        int i = slot( keys[e] );
+        while ( table[i] != e + 1 )
+            i = ( i + 1 ) & mask;
+        // shift back the entries after it that would no longer be found.
+        for ( int j = ( i + 1 ) & mask; table[j] != 0; j = ( j + 1 ) & mask )
+        {
+            int home = slot( keys[table[j] - 1] );
+            if ( ( ( j - home ) & mask ) >= ( ( j - i ) & mask ) )
+            {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+        steps -= paths[e].length;
+        paths[e] = null;
+        free[freeCount++] = e;
+        size--;
+    }
+
+    private int slot( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ( int ) ( h ^ ( h >>> 32 ) ) & mask;
+    }
+
+    private int[] delegate( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        if ( finder.isThreadSafe() ) return finder.findPath( grid, x1, y1, x2, y2 );
+        synchronized ( finder )
+        {
+            return finder.findPath( grid, x1, y1, x2, y2 );
+        }
+    }
+
+    private boolean delegate( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        if ( finder.isThreadSafe() ) return finder.findPath( grid, x1, y1, x2, y2, out );
+        synchronized ( finder )
+        {
+            return finder.findPath( grid, x1, y1, x2, y2, out );
+        }
+    }
+
+    private PathResult delegate( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        if ( finder.isThreadSafe() ) return finder.findPath( grid, x1, y1, x2, y2, limits );
+        synchronized ( finder )
+        {
+            return finder.findPath( grid, x1, y1, x2, y2, limits );
+        }
+    }
+
+    /** True if each number of the query fits in 16 bits of a key. */
+    static boolean fits( int x1, int y1, int x2, int y2 )
+    {
+        return ( ( x1 | y1 | x2 | y2 ) & ~MAX_COORD ) == 0;
+    }
+
+    /**
+     * Packs the query into 16 bits for each number, which must fit (see
+     * fits). The key is negative when x1 is over 0x7FFF.
+     */
+    static long key( int x1, int y1, int x2, int y2 )
+    {
+        return ( ( long ) x1 << 48 ) | ( ( long ) y1 << 32 ) | ( ( long ) x2 << 16 ) | y2;
+    }
+
+    /**
+     * Changes whenever the grid changes: the change count of an
+     * ObservablePathGrid, otherwise a hash of every cell.
+     */
+    static long version( PathGrid grid )
+    {
+        if ( grid instanceof ObservablePathGrid ) return ( ( ObservablePathGrid ) grid ).getModCount();
+        long h = grid.getWidth() * 31L + grid.getHeight();
+        if ( grid instanceof BitPathGrid )
+        {
+            BitPathGrid bits = ( BitPathGrid ) grid;
+            for ( int y = 0; y < bits.getHeight(); y++ )
+                for ( int n = 0; n < bits.getStride(); n++ )
+                    h = mix( h, bits.getWord( y, n ) );
+            return h;
+        }
+        long word = 0;
+        int count = 0;
+        for ( int y = 0; y < grid.getHeight(); y++ )
+        {
+            for ( int x = 0; x < grid.getWidth(); x++ )
+            {
+                word = ( word << 1 ) | ( grid.getGrid( x, y ) ? 1 : 0 );
+                if ( ++count == 64 )
+                {
+                    h = mix( h, word );
+                    word = 0;
+                    count = 0;
+                }
+            }
+        }
+        return mix( h, word );
+    }
+
+    private static long mix( long h, long word )
+    {
+        h = ( h ^ word ) * 0x9E3779B97F4A7C15L;
+        return h ^ ( h >>> 29 );
+    }
+
+}//CachingPathFinder
@@ -0,0 +1,220 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A path of directions (0 = up, 1 = right, 2 = down, 3 = left) stored in two
+ * bits each, 32 to a long. Adding a step is constant time and reading the
+ * steps back with a StepVisitor or a Cursor allocates nothing, so a long path
+ * costs a sixteenth of an int[] and far less than a Path.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class CompactPath
+{
+
+    /**
+     * Called for each step of a path by forEach.
+     */
+    public interface StepVisitor
+    {
+
+        /**
+         * @param i
+         *            index of the step.
+         * @param dir
+         *            direction of the step.
+         * @param x
+         *            x after the step.
+         * @param y
+         *            y after the step.
+         */
+        void step( int i, int dir, int x, int y );
+    }
+
+    private long[] words;
+
+    private int size;
+
+    public CompactPath()
+    {
+        this( 64 );
+    }
+
+    public CompactPath( int capacity )
+    {
+        words = new long[( capacity + 31 ) >>> 5];
+    }
+
+    public static CompactPath of( int[] dirs )
+    {
+        CompactPath ret = new CompactPath( dirs.length );
+        ret.addAll( dirs, 0, dirs.length );
+        return ret;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public int get( int i )
+    {
+        if ( i >= size ) throw new ArrayIndexOutOfBoundsException( i );
+        return ( int ) ( words[i >>> 5] >>> ( ( i & 31 ) << 1 ) ) & 3;
+    }
+
+    public void add( int dir )
+    {
+        int n = size >>> 5;
+        if ( n == words.length ) words = Arrays.copyOf( words, Math.max( 1, words.length * 2 ) );
+        int shift = ( size & 31 ) << 1;
+        words[n] = ( words[n] & ~( 3L << shift ) ) | ( ( long ) ( dir & 3 ) << shift );
+        size++;
+    }
+
+    public void addAll( int[] dirs, int from, int len )
+    {
+        for ( int i = from; i < from + len; i++ )
+            add( dirs[i] );
+    }
+
+    /** Removes the last step. */
+    public void removeLast()
+    {
+        if ( size == 0 ) throw new IllegalStateException( "empty path" );
+        size--;
+    }
+
+    public int[] toArray()
+    {
+        int[] ret = new int[size];
+        for ( int i = 0; i < size; i++ )
+            ret[i] = get( i );
+        return ret;
+    }
+
+    /** Writes the steps into the buffer, replacing its contents. */
+    public void toBuffer( PathBuffer out )
+    {
+        out.setSize( size );
+        int[] dirs = out.array();
+        for ( int i = 0; i < size; i++ )
+            dirs[i] = get( i );
+    }
+
+    /**
+     * The same path walked from its end back to its start.
+     */
+    public CompactPath reverse()
+    {
+        CompactPath ret = new CompactPath( size );
+        for ( int i = size - 1; i >= 0; i-- )
+            ret.add( get( i ) ^ 2 );
+        return ret;
+    }
+
+    /**
+     * Walks the path from x, y calling the visitor for every step.
+     */
+    public void forEach( int x, int y, StepVisitor visitor )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            int dir = get( i );
+            x += PathFinder.DX[dir];
+            y += PathFinder.DY[dir];
+            visitor.step( i, dir, x, y );
+        }
+    }
+
+    /**
+     * Returns a cursor over the steps. A Cursor can be reset and reused.
+     */
+    public Cursor cursor()
+    {
+        return new Cursor( this );
+    }
+
+    /**
+     * Only the points where the path turns, walking from x, y: the start, each
+     * corner and the end as x, y pairs.
+     */
+    public int[] getWaypoints( int x, int y )
+    {
+        int turns = 0;
+        for ( int i = 1; i < size; i++ )
+            if ( get( i ) != get( i - 1 ) ) turns++;
+        int[] ret = new int[size == 0 ? 2 : 2 * ( turns + 2 )];
+        int k = 0;
+        ret[k++] = x;
+        ret[k++] = y;
+        for ( int i = 0; i < size; i++ )
+        {
+            int dir = get( i );
+            if ( i > 0 && dir != get( i - 1 ) )
+            {
+                ret[k++] = x;
+                ret[k++] = y;
+            }
+            x += PathFinder.DX[dir];
+            y += PathFinder.DY[dir];
+        }
+        if ( size > 0 )
+        {
+            ret[k++] = x;
+            ret[k++] = y;
+        }
+        return ret;
+    }
+
+    public String toString()
+    {
+        return Arrays.toString( toArray() );
+    }
+
+    /**
+     * Reads the steps of a CompactPath in order.
+     */
+    public static class Cursor
+    {
+
+        private CompactPath path;
+
+        private int i;
+
+        public Cursor( CompactPath path )
+        {
+            reset( path );
+        }
+
+        /** Starts over at the first step of the given path. */
+        public void reset( CompactPath path )
+        {
+            this.path = path;
+            this.i = 0;
+        }
+
+        public boolean hasNext()
+        {
+            return i < path.size;
+        }
+
+        /** The next direction. */
+        public int next()
+        {
+            return path.get( i++ );
+        }
+    }
+}//CompactPath
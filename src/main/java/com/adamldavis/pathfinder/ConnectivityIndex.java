@@ -0,0 +1,309 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Labels the regions of free cells that are connected (up, down, left or
+ * right) so that whether one cell can reach another is answered without a
+ * search. The labels are found with one scan of the grid and a union-find.
+ * <BR>
+ * If the grid is an ObservablePathGrid the index listens to it, otherwise
+ * call cellChanged after changing a cell. Opening a cell joins the regions
+ * around it. Closing a cell searches out from its free neighbors at the same
+ * time and relabels only the pieces that were cut off, which stops as soon as
+ * all but one piece has been found.
+ * <BR>
+ * Give the index to a finder with PathFinder.setConnectivity and the finder
+ * returns null at once for a goal it can't reach. Queries may run on many
+ * threads, but not while the grid is changing.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class ConnectivityIndex implements PathGridListener
+{
+
+    /** Label of a blocked cell. */
+    private static final int BLOCKED = -1;
+
+    private final PathGrid grid;
+
+    private final int width;
+
+    private final int height;
+
+    /** Union-find element of each cell, or BLOCKED. */
+    private final int[] label;
+
+    /** Union-find parent of each element. */
+    private int[] parent;
+
+    private int labels;
+
+    /** Which search of the current split reached each cell. */
+    private final int[] mark;
+
+    private int generation;
+
+    public ConnectivityIndex( PathGrid grid )
+    {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int n = PathFinder.cellCount( grid );
+        label = new int[n];
+        mark = new int[n];
+        parent = new int[64];
+        rebuild();
+        if ( grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) grid ).addListener( this );
+    }
+
+    public PathGrid getGrid()
+    {
+        return grid;
+    }
+
+    /** Stops listening to the grid. */
+    public void dispose()
+    {
+        if ( grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) grid ).removeListener( this );
+    }
+
+    /**
+     * Relabels the whole grid with one scan, joining each free cell to the
+     * free cells to its left and above.
+     */
+    public void rebuild()
+    {
+        labels = 0;
+        for ( int y = 0; y < height; y++ )
+        {
+            for ( int x = 0; x < width; x++ )
+            {
+                int i = y * width + x;
+                if ( grid.getGrid( x, y ) )
+                {
+                    label[i] = BLOCKED;
+                    continue;
+                }
+                boolean left = x > 0 && label[i - 1] != BLOCKED;
+                boolean up = y > 0 && label[i - width] != BLOCKED;
+                if ( left && up )
+                {
+                    label[i] = label[i - 1];
+                    union( label[i - 1], label[i - width] );
+                } else if ( left )
+                {
+                    label[i] = label[i - 1];
+                } else if ( up )
+                {
+                    label[i] = label[i - width];
+                } else
+                {
+                    label[i] = newLabel();
+                }
+            }
+        }
+    }
+
+    /**
+     * True if both cells are free and connected.
+     */
+    public boolean isReachable( int x1, int y1, int x2, int y2 )
+    {
+        int a = getRegion( x1, y1 );
+        return a >= 0 && a == getRegion( x2, y2 );
+    }
+
+    /**
+     * An id of the region of the cell, the same for every cell of the region,
+     * or -1 if the cell is blocked or outside the grid. Ids change as the grid
+     * changes.
+     */
+    public int getRegion( int x, int y )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height ) return -1;
+        int l = label[y * width + x];
+        return l == BLOCKED ? -1 : find( l );
+    }
+
+    public void cellChanged( PathGrid grid, int x, int y, boolean blocked )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height ) return;
+        if ( blocked )
+            close( x, y );
+        else
+            open( x, y );
+    }
+
+    private void open( int x, int y )
+    {
+        int i = y * width + x;
+        if ( label[i] != BLOCKED ) return;
+        int l = newLabel();
+        label[i] = l;
+        for ( int dir = 0; dir < 4; dir++ )
+        {
+            int nx = x + PathFinder.DX[dir];
+            int ny = y + PathFinder.DY[dir];
+            if ( nx < 0 || ny < 0 || nx >= width || ny >= height ) continue;
+            int n = label[ny * width + nx];
+            if ( n != BLOCKED ) union( l, n );
+        }
+    }
+
+    /**
+     * Closes the cell and, if that split its region, gives each piece except
+     * the last one still being searched a new label.
+     */
+    private void close( int x, int y )
+    {
+        int i = y * width + x;
+        if ( label[i] == BLOCKED ) return;
+        label[i] = BLOCKED;
+
+        // one breadth-first search per free neighbor, run in turns.
+        int[][] queue = new int[4][];
+        int[] head = new int[4];
+        int[] tail = new int[4];
+        int[] group = new int[4]; // searches that met share a group.
+        int k = 0;
+        for ( int dir = 0; dir < 4; dir++ )
+        {
+            int nx = x + PathFinder.DX[dir];
+            int ny = y + PathFinder.DY[dir];
+            if ( nx < 0 || ny < 0 || nx >= width || ny >= height || label[ny * width + nx] == BLOCKED ) continue;
+            queue[k] = new int[16];
+            queue[k][tail[k]++] = ny * width + nx;
+            group[k] = k;
+            k++;
+        }
+        if ( k < 2 ) return;
+
+        nextGeneration();
+        for ( int s = 0; s < k; s++ )
+            mark[queue[s][0]] = generation + s;
+        int active = k;
+        while ( active > 1 )
+        {
+            for ( int s = 0; s < k && active > 1; s++ )
+            {
+                if ( group[s] != s || !isSearching( s, group, head, tail, k ) ) continue;
+                // step each search of group s once.
+                for ( int t = 0; t < k; t++ )
+                {
+                    if ( group[t] != s || head[t] == tail[t] ) continue;
+                    int cur = queue[t][head[t]++];
+                    int cx = cur % width;
+                    int cy = cur / width;
+                    for ( int dir = 0; dir < 4; dir++ )
+                    {
+                        int nx = cx + PathFinder.DX[dir];
+                        int ny = cy + PathFinder.DY[dir];
+                        if ( nx < 0 || ny < 0 || nx >= width || ny >= height ) continue;
+                        int n = ny * width + nx;
+                        if ( label[n] == BLOCKED ) continue;
+                        int m = mark[n] - generation;
+                        if ( m >= 0 && m < k )
+                        {
+                            int other = group[m];
+                            if ( other != s )
+                            {
+                                for ( int u = 0; u < k; u++ )
+                                    if ( group[u] == other ) group[u] = s;
+                                active--;
+                            }
+                            continue;
+                        }
+                        mark[n] = generation + t;
+                        if ( tail[t] == queue[t].length ) queue[t] = Arrays.copyOf( queue[t], tail[t] * 2 );
+                        queue[t][tail[t]++] = n;
+                    }
+                }
+                if ( !isSearching( s, group, head, tail, k ) )
+                {
+                    // group s found all of its piece, which is cut off.
+                    int l = newLabel();
+                    for ( int t = 0; t < k; t++ )
+                        if ( group[t] == s ) for ( int j = 0; j < tail[t]; j++ )
+                            label[queue[t][j]] = l;
+                    active--;
+                }
+            }
+        }
+    }
+
+    private static boolean isSearching( int s, int[] group, int[] head, int[] tail, int k )
+    {
+        for ( int t = 0; t < k; t++ )
+            if ( group[t] == s && head[t] < tail[t] ) return true;
+        return false;
+    }
+
+    private void nextGeneration()
+    {
+        generation += 4;
+        if ( generation < 0 || generation + 4 < 0 )
+        {
+            Arrays.fill( mark, 0 );
+            generation = 4;
+        }
+    }
+
+    private int newLabel()
+    {
+        if ( labels == parent.length )
+        {
+            if ( labels > 2 * label.length )
+            {
+                compact();
+                if ( labels < parent.length ) return newLabel();
+            }
+            parent = Arrays.copyOf( parent, parent.length * 2 );
+        }
+        parent[labels] = labels;
+        return labels++;
+    }
+
+    /**
+     * Renumbers the labels from zero once too many have been handed out.
+     */
+    private void compact()
+    {
+        int[] map = new int[labels];
+        Arrays.fill( map, -1 );
+        int n = 0;
+        for ( int i = 0; i < label.length; i++ )
+        {
+            if ( label[i] == BLOCKED ) continue;
+            int r = find( label[i] );
+            if ( map[r] < 0 ) map[r] = n++;
+            label[i] = map[r];
+        }
+        for ( int l = 0; l < n; l++ )
+            parent[l] = l;
+        labels = n;
+    }
+
+    private int find( int l )
+    {
+        while ( parent[l] != l )
+        {
+            parent[l] = parent[parent[l]];
+            l = parent[l];
+        }
+        return l;
+    }
+
+    private void union( int a, int b )
+    {
+        a = find( a );
+        b = find( b );
+        if ( a == b ) return;
+        if ( a < b )
+            parent[b] = a;
+        else
+            parent[a] = b;
+    }
+
+}//ConnectivityIndex
@@ -0,0 +1,493 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves many agents over one grid so that no two are ever in the same cell at
+ * once and no two swap cells, using windowed cooperative A* (WHCA*). Each
+ * agent searches in space and time, over cells and the next few ticks (the
+ * window), around the cells the other agents have claimed in a shared
+ * ReservationTable, and then claims the cells of its own plan. Halfway
+ * through its window it plans again. An agent that reaches its goal leaves
+ * the grid and gives back its claims.
+ * <BR>
+ * To know which way to head, each agent keeps a path to its goal from
+ * AStarPathFinder that ignores the other agents, and aims for the cell a
+ * window ahead on it. That path is only found again when the agent has been
+ * pushed off it. Each search expands at most a fixed number of states, and if
+ * it runs out before filling the window the agent keeps its old plan for a
+ * while or takes the best part of the new one.
+ * <BR>
+ * A plan only ends in a cell the agent can stay in for good: it claims that
+ * cell at ReservationTable.FOREVER, and the others plan around it from the
+ * time it gets there until it plans again. So an agent whose plan runs out
+ * before its goal waits where it is without anyone moving in.
+ * <BR>
+ * Call step() once per tick. The grid should not change while agents are on
+ * it. A planner is not thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class CooperativePlanner
+{
+
+    private final PathGrid grid;
+
+    private final int width;
+
+    private final int window;
+
+    private final int maxExpansions;
+
+    private final ReservationTable table;
+
+    private final AStarPathFinder finder = new AStarPathFinder( Integer.MAX_VALUE );
+
+    private final List<Agent> agents = new ArrayList<Agent>();
+
+    private int now;
+
+    private long replans;
+
+    private long expansions;
+
+    // the search, reused for every agent.
+
+    private final int[] nodeCell;
+
+    private final int[] nodeDepth;
+
+    private final int[] nodeParent;
+
+    private final IndexedHeap open;
+
+    /** Cell and depth of the states seen by this search, hashed. */
+    private final long[] seen;
+
+    private final int[] seenStamp;
+
+    private int stamp;
+
+    private final int[] plan;
+
+    private final PathBuffer steps = new PathBuffer( 64 );
+
+    /** Set by search() if it filled the window or reached the goal. */
+    private boolean complete;
+
+    public CooperativePlanner( PathGrid grid )
+    {
+        this( grid, 16, 1024 );
+    }
+
+    /**
+     * @param window
+     *            Ticks each agent plans ahead.
+     * @param maxExpansions
+     *            Most states one search may expand.
+     */
+    public CooperativePlanner( PathGrid grid, int window, int maxExpansions )
+    {
+        if ( grid.getWidth() > ReservationTable.MAX_COORD + 1 || grid.getHeight() > ReservationTable.MAX_COORD + 1 )
+            throw new IllegalArgumentException( "grid too large" );
+        if ( window < 2 || maxExpansions < 1 ) throw new IllegalArgumentException( "window " + window );
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.window = window;
+        this.maxExpansions = maxExpansions;
+        this.table = new ReservationTable( 1024 );
+        int nodes = maxExpansions * 5 + 1;
+        nodeCell = new int[nodes];
+        nodeDepth = new int[nodes];
+        nodeParent = new int[nodes];
+        open = new IndexedHeap( nodes );
+        int size = Integer.highestOneBit( nodes ) << 2;
+        seen = new long[size];
+        seenStamp = new int[size];
+        plan = new int[window + 1];
+    }
+
+    public PathGrid getGrid()
+    {
+        return grid;
+    }
+
+    public int getWindow()
+    {
+        return window;
+    }
+
+    /** The ticks so far. */
+    public int getTime()
+    {
+        return now;
+    }
+
+    /** The claims of all agents. */
+    public ReservationTable getReservations()
+    {
+        return table;
+    }
+
+    /** Number of agents added, finished or not. */
+    public int getAgentCount()
+    {
+        return agents.size();
+    }
+
+    /** Number of searches so far. */
+    public long getReplans()
+    {
+        return replans;
+    }
+
+    /** Number of states expanded by all searches so far. */
+    public long getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * True if an agent can be added at the cell: it is not an obstacle, and no
+     * agent has claimed it within the window or waits in it.
+     */
+    public boolean isFree( int x, int y )
+    {
+        if ( grid.getGrid( x, y ) || table.getAgent( x, y, ReservationTable.FOREVER ) >= 0 ) return false;
+        for ( int t = now; t <= now + window; t++ )
+            if ( table.getAgent( x, y, t ) >= 0 ) return false;
+        return true;
+    }
+
+    /**
+     * Puts a new agent on the grid and plans its first steps. Returns its id.
+     *
+     * @throws IllegalArgumentException
+     *             If the cell is not free (see isFree).
+     */
+    public int addAgent( int x, int y, int goalX, int goalY )
+    {
+        if ( !isFree( x, y ) ) throw new IllegalArgumentException( "cell " + x + "," + y + " is taken" );
+        Agent a = new Agent( agents.size(), y * width + x, goalY * width + goalX );
+        agents.add( a );
+        if ( a.cell == a.goal )
+        {
+            a.finished = true;
+            return a.id;
+        }
+        table.reserve( x, y, now, a.id );
+        table.reserve( x, y, ReservationTable.FOREVER, a.id );
+        a.plan = new int[] { a.cell };
+        a.planStart = now;
+        findGuide( a );
+        replan( a );
+        return a.id;
+    }
+
+    /**
+     * Takes the agent off the grid and gives back its claims.
+     */
+    public void removeAgent( int id )
+    {
+        Agent a = agents.get( id );
+        if ( a.finished ) return;
+        release( a, now );
+        a.finished = true;
+    }
+
+    public int getX( int id )
+    {
+        return agents.get( id ).cell % width;
+    }
+
+    public int getY( int id )
+    {
+        return agents.get( id ).cell / width;
+    }
+
+    /** True if the agent reached its goal or was removed. */
+    public boolean isFinished( int id )
+    {
+        return agents.get( id ).finished;
+    }
+
+    /**
+     * Moves every agent one step along its plan, lets those at their goals
+     * leave, and plans again for those that are halfway through their window.
+     */
+    public void step()
+    {
+        now++;
+        table.setTime( now );
+        for ( Agent a : agents )
+        {
+            if ( a.finished ) continue;
+            a.cell = cellAt( a, now );
+            if ( a.cell == a.goal )
+            {
+                release( a, now );
+                a.finished = true;
+            }
+        }
+        for ( Agent a : agents )
+        {
+            if ( a.finished || a.plan[a.plan.length - 1] == a.goal ) continue;
+            if ( end( a ) - now <= window / 2 ) replan( a );
+        }
+    }
+
+    /** Where the agent's plan has it at time t. */
+    private static int cellAt( Agent a, int t )
+    {
+        return a.plan[Math.min( Math.max( t - a.planStart, 0 ), a.plan.length - 1 )];
+    }
+
+    /** The time of the last cell of the agent's plan. */
+    private static int end( Agent a )
+    {
+        return a.planStart + a.plan.length - 1;
+    }
+
+    /** Gives back the agent's claims from time t on, and the cell it waits in. */
+    private void release( Agent a, int t )
+    {
+        for ( int end = end( a ); t <= end; t++ )
+        {
+            int cell = cellAt( a, t );
+            table.release( cell % width, cell / width, t, a.id );
+        }
+        int last = a.plan[a.plan.length - 1];
+        table.release( last % width, last / width, ReservationTable.FOREVER, a.id );
+    }
+
+    /**
+     * True if another agent has the cell at time t, by a claim or because it
+     * waits there from then on.
+     */
+    private boolean isTaken( int x, int y, int t, Agent a )
+    {
+        if ( !table.isFree( x, y, t, a.id ) ) return true;
+        int k = table.getAgent( x, y, ReservationTable.FOREVER );
+        return k >= 0 && k != a.id && t >= end( agents.get( k ) );
+    }
+
+    /**
+     * True if the agent could stay for good in the cell it reaches at depth
+     * d: no other agent waits there or has claimed it later in the window,
+     * which is as far ahead as anyone has claimed.
+     */
+    private boolean canStay( Agent a, int cell, int d )
+    {
+        int x = cell % width;
+        int y = cell / width;
+        if ( !table.isFree( x, y, ReservationTable.FOREVER, a.id ) ) return false;
+        for ( int t = now + d + 1; t <= now + window; t++ )
+            if ( !table.isFree( x, y, t, a.id ) ) return false;
+        return true;
+    }
+
+    /**
+     * Searches again from where the agent is, and swaps its claims for those
+     * of the new plan.
+     */
+    private void replan( Agent a )
+    {
+        int i = a.progress;
+        int last = Math.min( a.progress + 2 * window, a.guide.length - 1 );
+        while ( i <= last && a.guide[i] != a.cell )
+            i++;
+        if ( i > last )
+        {
+            findGuide( a );
+            i = 0;
+        }
+        a.progress = i;
+        int target = a.guide[Math.min( i + window, a.guide.length - 1 )];
+
+        int len = search( a, target );
+        // a short plan is only worth taking when the old one is running out.
+        if ( len == 0 || !complete && end( a ) >= now + 2 ) return;
+        release( a, now + 1 );
+        int[] cells = new int[len];
+        for ( int j = 0; j < len; j++ )
+        {
+            cells[j] = plan[j];
+            table.reserve( plan[j] % width, plan[j] / width, now + j, a.id );
+        }
+        a.plan = cells;
+        a.planStart = now;
+        int stay = cells[len - 1];
+        if ( stay != a.goal ) table.reserve( stay % width, stay / width, ReservationTable.FOREVER, a.id );
+    }
+
+    /** Finds the agent's path to its goal, ignoring the other agents. */
+    private void findGuide( Agent a )
+    {
+        int x = a.cell % width;
+        int y = a.cell / width;
+        if ( !finder.findPath( grid, x, y, a.goal % width, a.goal / width, steps ) ) steps.clear();
+        int[] guide = new int[steps.size() + 1];
+        guide[0] = a.cell;
+        for ( int j = 0; j < steps.size(); j++ )
+        {
+            int dir = steps.get( j );
+            x += PathFinder.DX[dir];
+            y += PathFinder.DY[dir];
+            guide[j + 1] = y * width + x;
+        }
+        a.guide = guide;
+        a.progress = 0;
+    }
+
+    /**
+     * A* over cells and ticks from the agent's cell now towards the target,
+     * where waiting is a fifth move and every move costs one tick. It stops
+     * when it reaches the goal, or reaches the target or the end of the window
+     * in a cell it can stay in. Writes the cells of the plan into plan and
+     * returns their number, or 0 if it found no cell to stay in.
+     */
+    private int search( Agent a, int target )
+    {
+        replans++;
+        complete = false;
+        open.clear();
+        if ( ++stamp == 0 )
+        {
+            Arrays.fill( seenStamp, 0 );
+            stamp = 1;
+        }
+        int tx = target % width;
+        int ty = target / width;
+        int nodes = 1;
+        nodeCell[0] = a.cell;
+        nodeDepth[0] = 0;
+        nodeParent[0] = -1;
+        markSeen( a.cell, 0 );
+        open.push( 0, key( 0, a.cell, tx, ty ) );
+        int best = -1;
+        int bestH = Integer.MAX_VALUE;
+        int found = -1;
+        int expanded = 0;
+        while ( !open.isEmpty() )
+        {
+            int node = open.poll();
+            int cell = nodeCell[node];
+            int d = nodeDepth[node];
+            int x = cell % width;
+            int y = cell / width;
+            int h = Math.abs( tx - x ) + Math.abs( ty - y );
+            if ( cell == a.goal || ( d == window || cell == target ) && canStay( a, cell, d ) )
+            {
+                found = node;
+                break;
+            }
+            if ( d == window ) continue;
+            if ( ( best < 0 || d > nodeDepth[best] || d == nodeDepth[best] && h < bestH ) && canStay( a, cell, d ) )
+            {
+                best = node;
+                bestH = h;
+            }
+            if ( expanded++ >= maxExpansions ) break;
+            int t = now + d;
+            for ( int dir = 0; dir < 5; dir++ )
+            {
+                int nx = x;
+                int ny = y;
+                if ( dir < 4 )
+                {
+                    nx += PathFinder.DX[dir];
+                    ny += PathFinder.DY[dir];
+                    if ( grid.getGrid( nx, ny ) ) continue;
+                }
+                if ( isTaken( nx, ny, t + 1, a ) ) continue;
+                if ( dir < 4 )
+                {
+                    // two agents may not pass through each other.
+                    int k = table.getAgent( nx, ny, t );
+                    if ( k >= 0 && k != a.id && table.getAgent( x, y, t + 1 ) == k ) continue;
+                }
+                int next = ny * width + nx;
+                if ( !markSeen( next, d + 1 ) ) continue;
+                nodeCell[nodes] = next;
+                nodeDepth[nodes] = d + 1;
+                nodeParent[nodes] = node;
+                open.push( nodes, key( d + 1, next, tx, ty ) );
+                nodes++;
+            }
+        }
+        expansions += expanded;
+        complete = found >= 0;
+        int end = complete ? found : best;
+        if ( end < 0 ) return 0;
+        int d = nodeDepth[end];
+        for ( int node = end; node >= 0; node = nodeParent[node] )
+            plan[nodeDepth[node]] = nodeCell[node];
+        // wait at the target through the window, so as not to plan again soon.
+        int hold = complete && nodeCell[end] != a.goal ? window : d;
+        for ( int j = d + 1; j <= hold; j++ )
+            plan[j] = nodeCell[end];
+        return hold + 1;
+    }
+
+    /**
+     * Orders by the number of ticks plus the distance to the target, and the
+     * deeper state first among equals.
+     */
+    private long key( int d, int cell, int tx, int ty )
+    {
+        int h = Math.abs( tx - cell % width ) + Math.abs( ty - cell / width );
+        return ( ( long ) ( d + h ) << 32 ) | ( window - d );
+    }
+
+    /** Adds the state, returning false if this search has already seen it. */
+    private boolean markSeen( int cell, int d )
+    {
+        long state = ( long ) cell * ( window + 1 ) + d;
+        int mask = seen.length - 1;
+        long h = state * 0x9E3779B97F4A7C15L;
+        for ( int i = ( int ) ( h ^ ( h >>> 32 ) ) & mask;; i = ( i + 1 ) & mask )
+        {
+            if ( seenStamp[i] != stamp )
+            {
+                seenStamp[i] = stamp;
+                seen[i] = state;
+                return true;
+            }
+            if ( seen[i] == state ) return false;
+        }
+    }
+
+    private static class Agent
+    {
+
+        final int id;
+
+        final int goal;
+
+        int cell;
+
+        boolean finished;
+
+        /** Cells from planStart on, each claimed at its time. */
+        int[] plan;
+
+        int planStart;
+
+        /** Cells of the path to the goal that ignores the other agents. */
+        int[] guide;
+
+        /** Index in the guide of the agent's cell when it last planned. */
+        int progress;
+
+        Agent( int id, int cell, int goal )
+        {
+            this.id = id;
+            this.cell = cell;
+            this.goal = goal;
+        }
+    }
+
+}//CooperativePlanner
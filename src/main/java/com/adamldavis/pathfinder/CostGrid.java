@@ -0,0 +1,28 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * A grid where each cell has a cost to enter, from 1 to MAX_COST, or 0 if it
+ * is an obstacle. It is also a PathGrid, so any PathFinder can search it as
+ * a plain grid of obstacles; DialPathFinder uses the costs.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public interface CostGrid extends PathGrid
+{
+
+    /** The highest cost of a cell. */
+    public static final int MAX_COST = 255;
+
+    /**
+     * The cost to enter the cell, or 0 if it is an obstacle or outside the
+     * grid.
+     */
+    public int getCost( int x, int y );
+
+    /**
+     * Sets the cost to enter the cell, 0 making it an obstacle.
+     */
+    public void setCost( int x, int y, int cost );
+
+}
@@ -2,11 +2,17 @@
 package com.adamldavis.pathfinder;
 
 import java.awt.Point;
+import java.util.Arrays;
 import java.util.Stack;
 
 /**
  * CrudePathFinder attempts to do an exhaustive search to find the shortest path but is limited to a certain number of iterations.
  * So it might take a long time to complete.
+ * <BR>
+ * Each step of the search copies the whole grid of visited cells, so it only
+ * suits small grids. In compact mode (see setCompact) it marks the visited
+ * cells in one grid and unmarks them as the search backs up, so a step costs
+ * about the same on any grid.
  *
  * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
  * @version Version 1.0, May 28, 2001
@@ -75,6 +81,35 @@ public class CrudePathFinder extends PathFinder {
 	 * Stack used to implement depth-first-search.
 	 */
 	Stack pathStack;
+	/**
+	 * Length of the best path found so far in the current search, starts at
+	 * the maximum distance for every search.
+	 */
+	int bound;
+	/**
+	 * Stats of the current search, or null if they are not being counted.
+	 */
+	SearchStats stats;
+	/**
+	 * Limits of the current search, or null to stop after MAX_ITER.
+	 */
+	SearchLimits limits;
+	/**
+	 * Search without copying the visited grid.
+	 */
+	boolean compact;
+	/**
+	 * Compact mode's stack, four ints per entry: x, y, direction and the
+	 * length of the path to x, y.
+	 */
+	private int[] stack = new int[64];
+	private int stackSize;
+	/**
+	 * Compact mode's current path, three ints per step: the x and y it
+	 * leaves from and its direction. The cells it leaves from are the ones
+	 * marked in the visited grid.
+	 */
+	private int[] trail = new int[48];
 
 	public CrudePathFinder() {
 		super();
@@ -98,6 +133,45 @@ public class CrudePathFinder extends PathFinder {
 	 * @param grid True means it is an obstacle.
 	 */
 	public int[] findPath(PathGrid grid, int x1, int y1, int x2, int y2) {
+		stats = beginSearch();
+		int[] path = compact ? searchCompact(grid, x1, y1, x2, y2) : search(grid, x1, y1, x2, y2);
+		if (stats != null) {
+			endSearch(stats, x1, y1, x2, y2, path == null ? -1 : path.length);
+			stats = null;
+		}
+		return path;
+	}
+
+	/**
+	 * Searches until the limits are reached instead of stopping after
+	 * MAX_ITER, and returns the shortest path found by then.
+	 */
+	public PathResult findPath(PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits) {
+		this.limits = limits;
+		try {
+			int[] path = findPath(grid, x1, y1, x2, y2);
+			return new PathResult(path, false, limits.isStopped());
+		} finally {
+			this.limits = null;
+		}
+	}
+
+	/**
+	 * In compact mode the search keeps one grid of visited cells and undoes
+	 * its marks as it backs up, instead of copying the grid for each step,
+	 * and prunes with the Manhattan distance. It tries the branches in the
+	 * same order, but the tighter bound prunes more of them, which leaves
+	 * more of MAX_ITER for the rest.
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	private int[] search(PathGrid grid, int x1, int y1, int x2, int y2) {
 		int n = 0;
 		Path ret = null;
 		Path temp;
@@ -110,8 +184,9 @@ public class CrudePathFinder extends PathFinder {
 		}
 
 		pathStack = new Stack();
+		bound = distance;
 
-		PathGrid trav = new SimplePathGrid(mygrid.getWidth(), mygrid.getHeight());
+		PathGrid trav = makeVisitedGrid(mygrid);
 		temp = new Path(); //new path.
 		int xdif = x2 - x1;
 		int ydif = y2 - y1;
@@ -129,10 +204,15 @@ public class CrudePathFinder extends PathFinder {
 
 		while (!pathStack.empty()) {
 			n++;
-			if (n > MAX_ITER) {
+			if (limits == null ? n > MAX_ITER : limits.isReached(n - 1)) {
 				break; //to stop long loops.
 			}
-			temp = findPath((Finder) pathStack.pop());
+			Finder f = (Finder) pathStack.pop();
+			if (stats != null) {
+				stats.iterations = n;
+				stats.expand(this, f.getX1(), f.getY1());
+			}
+			temp = findPath(f);
 			
 			if (temp != null) {
 				ret = temp;
@@ -150,6 +230,117 @@ public class CrudePathFinder extends PathFinder {
 		}
 	}
 
+	/**
+	 * The search of compact mode. The entries on the stack are the same as
+	 * the Finders of the other mode without their path and visited grid:
+	 * since the search is depth-first, when an entry with a path of length d
+	 * comes off the stack the first d steps of the trail are its path, and
+	 * the cells they leave from are the only ones marked visited.
+	 */
+	private int[] searchCompact(PathGrid grid, int x1, int y1, int x2, int y2) {
+		if (super.hasProblem(grid, x1, y1, x2, y2)) {
+			return null;
+		}
+		bound = distance;
+		PathGrid trav = makeVisitedGrid(mygrid);
+		int[] ret = null;
+		int depth = 0; // steps in the trail.
+		int n = 0;
+		stackSize = 0;
+		pushAll(x1, y1, x2, y2, 0);
+
+		while (stackSize > 0) {
+			n++;
+			if (limits == null ? n > MAX_ITER : limits.isReached(n - 1)) {
+				break; //to stop long loops.
+			}
+			int e = --stackSize * 4;
+			int x = stack[e];
+			int y = stack[e + 1];
+			int w = stack[e + 2];
+			int d = stack[e + 3];
+			if (stats != null) {
+				stats.iterations = n;
+				stats.expand(this, x, y);
+			}
+			while (depth > d) { // back up to this entry's path.
+				depth--;
+				trav.setGrid(trail[depth * 3], trail[depth * 3 + 1], false);
+			}
+
+			if (mygrid.getGrid(x, y) || goingInCircle(x, y, trav)) {
+				continue;
+			} else if (x == x2 && y == y2) { // found path
+				if (d < bound) {
+					bound = d;
+					ret = new int[d];
+					for (int i = 0; i < d; i++) {
+						ret[i] = trail[i * 3 + 2];
+					}
+				}
+				continue;
+			} else if (Math.abs(x2 - x) + Math.abs(y2 - y) + d >= bound) {
+				continue;
+			}
+			trav.setGrid(x, y, true);
+			if (trail.length < (depth + 1) * 3) {
+				trail = Arrays.copyOf(trail, trail.length * 2);
+			}
+			trail[depth * 3] = x;
+			trail[depth * 3 + 1] = y;
+			trail[depth * 3 + 2] = w;
+			depth++;
+			x += dx(w);
+			y += dy(w);
+			if (!isDud(x, y, trav)) {
+				if (x == x2 && y == y2) {
+					push(x, y, -1, depth);
+				} else {
+					pushAll(x, y, x2, y2, depth);
+				}
+			}
+		}
+		if (bDEBUG) {
+			System.out.println("Crude n=" + n);
+		}
+		return ret;
+	}
+
+	/**
+	 * Pushes the moves from x, y in the same order as the other mode, so the
+	 * move toward the goal comes off first.
+	 */
+	private void pushAll(int x, int y, int x2, int y2, int d) {
+		int xdif = x2 - x;
+		int ydif = y2 - y;
+		if (Math.abs(xdif) > Math.abs(ydif)) {
+			push(x, y, xdif > 0 ? 3 : 1, d);
+			push(x, y, 0, d);
+			push(x, y, 2, d);
+			push(x, y, xdif > 0 ? 1 : 3, d); //1st
+		} else {
+			push(x, y, ydif > 0 ? 0 : 2, d);
+			push(x, y, 1, d);
+			push(x, y, 3, d);
+			push(x, y, ydif > 0 ? 2 : 0, d); //1st
+		}
+	}
+
+	private void push(int x, int y, int dir, int d) {
+		int e = stackSize * 4;
+		if (e == stack.length) {
+			stack = Arrays.copyOf(stack, e * 2);
+		}
+		stack[e] = x;
+		stack[e + 1] = y;
+		stack[e + 2] = dir;
+		stack[e + 3] = d;
+		stackSize++;
+		if (stats != null) {
+			stats.generate(stackSize);
+		}
+	}
+
 	private Path findPath(Finder f) {
 		Path temp;
 
@@ -162,8 +353,8 @@ public class CrudePathFinder extends PathFinder {
 	 */
 	private Path findPath(int x1, int y1, int x2, int y2, int w, Path path, PathGrid trav) {
 		if (bDEBUG) {
-			System.out.println("c findPath " + x1 + "," + y1 + ":" + x2 + "," + y2 + "\t" + "distance = "
-				+ distance);
+			System.out.println("c findPath " + x1 + "," + y1 + ":" + x2 + "," + y2 + "\t" + "bound = "
+				+ bound);
 		}
 		int i;
 		Path temp;
@@ -174,12 +365,12 @@ public class CrudePathFinder extends PathFinder {
 			//this keeps us from going in circles.
 			return ret;
 		} else if (x1 == x2 && y1 == y2) { // found path
-			if (d < distance) {
-				distance = d;
+			if (d < bound) {
+				bound = d;
 				ret = path;
 			}
 		} //if we already found a better path.
-		else if ((int) Point.distance(x1, y1, x2, y2) + d >= distance) {
+		else if ((int) Point.distance(x1, y1, x2, y2) + d >= bound) {
 			return ret;
 		} else {
 			/*
@@ -234,6 +425,9 @@ public class CrudePathFinder extends PathFinder {
 		//if (dif == 0) return;
 		
 		pathStack.push(new Finder(x1, y1, x2, y2, i, path, trav.copy()));
+		if (stats != null) {
+			stats.generate(pathStack.size());
+		}
 	}
 
 	/**
@@ -0,0 +1,258 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Keeps planning a shortest path from a moving start to a fixed goal while the
+ * grid changes, using D* Lite. The search runs backward from the goal and is
+ * kept between calls to plan(), so after a few cells change or the agent moves
+ * only the part of the search those changes affect is redone.
+ * <BR>
+ * If the grid is an ObservablePathGrid the planner listens to it, otherwise
+ * call cellChanged after changing a cell. Call dispose() when the planner is
+ * no longer needed so that the grid stops telling it about changes. A planner
+ * is for one agent and is not thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class DStarLitePlanner implements PathGridListener
+{
+
+    /** Cost of a cell that can't reach the goal. */
+    private static final int INF = 1 << 30;
+
+    private final PathGrid grid;
+
+    private final int width;
+
+    private final int goal;
+
+    private int start;
+
+    /** Start of the last plan, for the key offset. */
+    private int last;
+
+    /** Added to the keys whenever the start moves, so old keys stay valid. */
+    private int km;
+
+    private final int[] g;
+
+    private final int[] rhs;
+
+    private final IndexedHeap open;
+
+    /** Cells changed since the last plan. */
+    private final PathBuffer changed = new PathBuffer( 16 );
+
+    private int expansions;
+
+    public DStarLitePlanner( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        int n = PathFinder.cellCount( grid );
+        g = new int[n];
+        rhs = new int[n];
+        Arrays.fill( g, INF );
+        Arrays.fill( rhs, INF );
+        open = new IndexedHeap( n );
+        goal = y2 * width + x2;
+        start = y1 * width + x1;
+        last = start;
+        rhs[goal] = 0;
+        open.push( goal, key( goal ) );
+        if ( grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) grid ).addListener( this );
+    }
+
+    public int getStartX()
+    {
+        return start % width;
+    }
+
+    public int getStartY()
+    {
+        return start / width;
+    }
+
+    /** Number of cells expanded by the last call to plan(). */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * Moves the start, usually because the agent took a step along the path.
+     */
+    public void moveStart( int x, int y )
+    {
+        start = y * width + x;
+    }
+
+    /**
+     * Remembers that a cell changed, to be repaired by the next plan().
+     */
+    public void cellChanged( PathGrid grid, int x, int y, boolean blocked )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= this.grid.getHeight() ) return;
+        changed.add( y * width + x );
+    }
+
+    /** Stops listening to the grid. */
+    public void dispose()
+    {
+        if ( grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) grid ).removeListener( this );
+    }
+
+    /**
+     * Repairs the search and returns the path from the start to the goal, or
+     * null if there is none.
+     */
+    public int[] plan()
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return plan( out ) ? out.toArray() : null;
+    }
+
+    /**
+     * Repairs the search and writes the path into out. Returns false if there
+     * is no path.
+     */
+    public boolean plan( PathBuffer out )
+    {
+        out.clear();
+        expansions = 0;
+        km += h( last, start );
+        last = start;
+        for ( int i = 0; i < changed.size(); i++ )
+        {
+            int cell = changed.get( i );
+            update( cell );
+            int x = cell % width;
+            int y = cell / width;
+            for ( int dir = 0; dir < 4; dir++ )
+            {
+                int nx = x + PathFinder.DX[dir];
+                int ny = y + PathFinder.DY[dir];
+                if ( inside( nx, ny ) ) update( ny * width + nx );
+            }
+        }
+        changed.clear();
+        computeShortestPath();
+
+        int sx = start % width;
+        int sy = start / width;
+        if ( grid.getGrid( sx, sy ) || g[start] >= INF ) return false;
+        int cur = start;
+        int steps = 0;
+        while ( cur != goal )
+        {
+            int best = -1;
+            int bestG = INF;
+            int x = cur % width;
+            int y = cur / width;
+            for ( int dir = 0; dir < 4; dir++ )
+            {
+                int nx = x + PathFinder.DX[dir];
+                int ny = y + PathFinder.DY[dir];
+                if ( grid.getGrid( nx, ny ) ) continue;
+                int next = ny * width + nx;
+                if ( g[next] < bestG )
+                {
+                    bestG = g[next];
+                    best = dir;
+                }
+            }
+            if ( best < 0 || ++steps > g[start] ) return false; // should not happen.
+            out.add( best );
+            cur += PathFinder.DY[best] * width + PathFinder.DX[best];
+        }
+        return true;
+    }
+
+    private void computeShortestPath()
+    {
+        while ( !open.isEmpty() && ( open.peekKey() < key( start ) || rhs[start] != g[start] ) )
+        {
+            int u = open.peek();
+            long old = open.peekKey();
+            long k = key( u );
+            expansions++;
+            if ( old < k )
+            {
+                open.push( u, k );
+            } else if ( g[u] > rhs[u] )
+            {
+                g[u] = rhs[u];
+                open.poll();
+                updateNeighbors( u );
+            } else
+            {
+                g[u] = INF;
+                update( u );
+                updateNeighbors( u );
+            }
+        }
+    }
+
+    private void updateNeighbors( int u )
+    {
+        int x = u % width;
+        int y = u / width;
+        for ( int dir = 0; dir < 4; dir++ )
+        {
+            int nx = x + PathFinder.DX[dir];
+            int ny = y + PathFinder.DY[dir];
+            if ( !grid.getGrid( nx, ny ) ) update( ny * width + nx );
+        }
+    }
+
+    /**
+     * Recomputes rhs of u from its neighbors and puts it in the open list if
+     * it is inconsistent.
+     */
+    private void update( int u )
+    {
+        int x = u % width;
+        int y = u / width;
+        if ( u != goal )
+        {
+            int min = INF;
+            if ( !grid.getGrid( x, y ) )
+            {
+                for ( int dir = 0; dir < 4; dir++ )
+                {
+                    int nx = x + PathFinder.DX[dir];
+                    int ny = y + PathFinder.DY[dir];
+                    if ( grid.getGrid( nx, ny ) ) continue;
+                    int gn = g[ny * width + nx];
+                    if ( gn + 1 < min ) min = gn + 1;
+                }
+            }
+            rhs[u] = min;
+        }
+        if ( g[u] != rhs[u] )
+            open.push( u, key( u ) );
+        else
+            open.remove( u );
+    }
+
+    /** The two part key of D* Lite packed into a long. */
+    private long key( int u )
+    {
+        int m = Math.min( g[u], rhs[u] );
+        long k1 = m >= INF ? Integer.MAX_VALUE : m + h( start, u ) + km;
+        return ( k1 << 32 ) | m;
+    }
+
+    private int h( int a, int b )
+    {
+        return Math.abs( a % width - b % width ) + Math.abs( a / width - b / width );
+    }
+
+    private boolean inside( int x, int y )
+    {
+        return x >= 0 && y >= 0 && x < width && y < grid.getHeight();
+    }
+
+}//DStarLitePlanner
@@ -0,0 +1,253 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Finds a cheapest path on a CostGrid, where entering a cell costs from 1 to
+ * 255, so that mud, roads and hazards can be weighed in one search. On any
+ * other PathGrid every free cell costs 1 and it finds a shortest path.
+ * <BR>
+ * It is A* with the Manhattan distance, which never overestimates since no
+ * cell costs less than 1, but the open list is a ring of buckets, one per
+ * f-score (Dial's algorithm) instead of a heap. The f-score of a neighbor is
+ * at most the cost of a cell plus one above that of the cell being expanded,
+ * so a ring of 512 buckets always holds the open cells apart, and adding,
+ * moving and taking a cell are O(1).
+ * <BR>
+ * The maximum distance limits the total cost, and there is none by default.
+ * Like AStarPathFinder it is thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class DialPathFinder extends PathFinder
+{
+
+    public DialPathFinder()
+    {
+        super( Integer.MAX_VALUE );
+    }
+
+    /**
+     * Initializes this pathfinder with a maximum possible cost for a path.
+     * @param maxDistance Maximum possible cost of a path in the grid.
+     */
+    public DialPathFinder( int maxDistance )
+    {
+        super( maxDistance );
+    }
+
+    /**
+     * Finds a cheapest path given a grid and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     *
+     * @param grid
+     *            True means it is an obstacle. If it is a CostGrid its costs
+     *            are used.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return findPath( grid, x1, y1, x2, y2, out ) ? out.toArray() : null;
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        SearchStats st = beginSearch();
+        long cost = search( grid, x1, y1, x2, y2, out, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, cost < 0 ? -1 : out.size() );
+        return cost >= 0;
+    }
+
+    /**
+     * Finds a cheapest path and its cost, or returns null if there is none.
+     */
+    public WeightedPath findWeightedPath( CostGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        SearchStats st = beginSearch();
+        long cost = search( grid, x1, y1, x2, y2, out, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, cost < 0 ? -1 : out.size() );
+        return cost < 0 ? null : new WeightedPath( out.toArray(), cost );
+    }
+
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        SearchStats st = beginSearch();
+        long cost = search( grid, x1, y1, x2, y2, out, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, cost < 0 ? -1 : out.size() );
+        boolean stopped = limits.isStopped();
+        return new PathResult( cost < 0 ? null : out.toArray(), cost >= 0 && stopped, stopped );
+    }
+
+    /**
+     * Writes the path into out and returns its cost, or returns -1 if there
+     * is none. If a limit is reached it writes a partial path instead.
+     */
+    private long search( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out, SearchStats st,
+            SearchLimits limits )
+    {
+        out.clear();
+        if ( grid == null || grid.getWidth() == 0 ) return -1;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return -1;
+        if ( x1 == x2 && y1 == y2 ) return 0;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return -1;
+
+        CostGrid costs = grid instanceof CostGrid ? ( CostGrid ) grid : null;
+        int w = grid.getWidth();
+        int n = cellCount( grid );
+        // the links are the directions each cell was entered in.
+        SearchScratch s = SearchScratch.acquire( n );
+        if ( s.buckets == null ) s.buckets = new Buckets();
+        Buckets open = s.buckets;
+        try
+        {
+            open.reset( n );
+            int start = y1 * w + x1;
+            int goal = y2 * w + x2;
+            s.set( start, 0, -1 );
+            int f = Math.abs( x2 - x1 ) + Math.abs( y2 - y1 );
+            open.add( start, f );
+            int best = start;
+            int bestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( open.count > 0 )
+            {
+                while ( open.head[f & Buckets.MASK] < 0 )
+                    f++;
+                int cur = open.head[f & Buckets.MASK];
+                open.remove( cur, f );
+                if ( cur == goal )
+                {
+                    makePath( s, w, goal, out );
+                    return s.g[goal];
+                }
+                int x = cur % w;
+                int y = cur / w;
+                if ( limits != null )
+                {
+                    int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+                    if ( h < bestH )
+                    {
+                        bestH = h;
+                        best = cur;
+                    }
+                    if ( limits.isReached( ++expanded ) )
+                    {
+                        makePath( s, w, best, out );
+                        return s.g[best];
+                    }
+                }
+                if ( st != null ) st.expand( this, x, y );
+                int g = s.g[cur];
+                for ( int dir = 0; dir < 4; dir++ )
+                {
+                    int nx = x + DX[dir];
+                    int ny = y + DY[dir];
+                    int c = costs != null ? costs.getCost( nx, ny ) : grid.getGrid( nx, ny ) ? 0 : 1;
+                    if ( c == 0 ) continue;
+                    int next = ny * w + nx;
+                    long ng = ( long ) g + c;
+                    int old = s.getG( next );
+                    if ( ng >= old ) continue;
+                    int h = Math.abs( x2 - nx ) + Math.abs( y2 - ny );
+                    if ( ng + h > distance ) continue;
+                    // a cell taken from the ring never gets cheaper, so a
+                    // cell with a g-score is still in it.
+                    if ( old != Integer.MAX_VALUE ) open.remove( next, old + h );
+                    s.set( next, ( int ) ng, dir );
+                    open.add( next, ( int ) ng + h );
+                    if ( st != null ) st.generate( open.count );
+                }
+            }
+            return -1;
+        } finally
+        {
+            s.release();
+        }
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * Follows the directions in the links back from the goal.
+     */
+    private static void makePath( SearchScratch s, int w, int goal, PathBuffer out )
+    {
+        int steps = 0;
+        for ( int cur = goal; s.link[cur] >= 0; steps++ )
+            cur -= DY[s.link[cur]] * w + DX[s.link[cur]];
+        out.setSize( steps );
+        int[] ret = out.array();
+        int cur = goal;
+        for ( int i = steps - 1; i >= 0; i-- )
+        {
+            int dir = s.link[cur];
+            ret[i] = dir;
+            cur -= DY[dir] * w + DX[dir];
+        }
+    }
+
+    /**
+     * The open list: a ring of buckets, each a doubly linked list of cells
+     * threaded through next and prev. A cell's bucket is its f-score modulo
+     * the size of the ring.
+     */
+    static class Buckets
+    {
+
+        /** More than the largest step in f-score, MAX_COST + 1. */
+        static final int SIZE = 512;
+
+        static final int MASK = SIZE - 1;
+
+        final int[] head = new int[SIZE];
+
+        int[] next = new int[0];
+
+        int[] prev = new int[0];
+
+        int count;
+
+        void reset( int n )
+        {
+            if ( next.length < n )
+            {
+                next = new int[n];
+                prev = new int[n];
+            }
+            Arrays.fill( head, -1 );
+            count = 0;
+        }
+
+        void add( int cell, int f )
+        {
+            int b = f & MASK;
+            int h = head[b];
+            next[cell] = h;
+            prev[cell] = -1;
+            if ( h >= 0 ) prev[h] = cell;
+            head[b] = cell;
+            count++;
+        }
+
+        void remove( int cell, int f )
+        {
+            int p = prev[cell];
+            int n = next[cell];
+            if ( p >= 0 )
+                next[p] = n;
+            else
+                head[f & MASK] = n;
+            if ( n >= 0 ) prev[n] = p;
+            count--;
+        }
+
+    }
+
+}//DialPathFinder
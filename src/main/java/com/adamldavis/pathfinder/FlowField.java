@@ -0,0 +1,196 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * The shortest distance to one goal cell from every cell of a grid, with the
+ * direction to move from each cell to get closer. It is built with one
+ * breadth-first search out from the goal, after which any number of agents
+ * heading to that goal can read their next step in constant time.
+ * <BR>
+ * The field is a snapshot: after the grid changes call rebuild(). Reading it
+ * from many threads is safe as long as no one is rebuilding it.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class FlowField
+{
+
+    /** Direction of a cell that can't reach the goal. */
+    public static final int NONE = -1;
+
+    private final PathGrid grid;
+
+    private final int width;
+
+    private final int height;
+
+    private int goalX;
+
+    private int goalY;
+
+    /** Direction to move from each cell, or NONE. */
+    private final byte[] next;
+
+    /** Distance of each cell, used for grids of fewer than 65536 cells. */
+    private final char[] shortDistance;
+
+    /** Distance of each cell, used for larger grids. */
+    private final int[] distance;
+
+    /** Cells to visit during rebuild(), kept so rebuilding allocates nothing. */
+    private final int[] queue;
+
+    public FlowField( PathGrid grid, int goalX, int goalY )
+    {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int n = PathFinder.cellCount( grid );
+        next = new byte[n];
+        if ( n < Character.MAX_VALUE )
+        {
+            shortDistance = new char[n];
+            distance = null;
+        } else
+        {
+            shortDistance = null;
+            distance = new int[n];
+        }
+        queue = new int[n];
+        setGoal( goalX, goalY );
+    }
+
+    public PathGrid getGrid()
+    {
+        return grid;
+    }
+
+    public int getGoalX()
+    {
+        return goalX;
+    }
+
+    public int getGoalY()
+    {
+        return goalY;
+    }
+
+    /**
+     * Moves the goal and rebuilds the field, reusing its arrays.
+     */
+    public void setGoal( int x, int y )
+    {
+        goalX = x;
+        goalY = y;
+        rebuild();
+    }
+
+    /**
+     * Recomputes the field from the current contents of the grid.
+     */
+    public void rebuild()
+    {
+        Arrays.fill( next, ( byte ) NONE );
+        if ( grid.getGrid( goalX, goalY ) ) return;
+
+        int head = 0;
+        int tail = 0;
+        int goal = goalY * width + goalX;
+        queue[tail++] = goal;
+        setDistance( goal, 0 );
+        next[goal] = ( byte ) NONE;
+        while ( head < tail )
+        {
+            int cur = queue[head++];
+            int x = cur % width;
+            int y = cur / width;
+            int d = getDistance( cur ) + 1;
+            for ( int dir = 0; dir < 4; dir++ )
+            {
+                int nx = x + PathFinder.DX[dir];
+                int ny = y + PathFinder.DY[dir];
+                if ( grid.getGrid( nx, ny ) ) continue;
+                int i = ny * width + nx;
+                if ( next[i] != NONE || i == goal ) continue;
+                next[i] = ( byte ) ( dir ^ 2 ); // back toward cur.
+                setDistance( i, d );
+                queue[tail++] = i;
+            }
+        }
+    }
+
+    private void setDistance( int i, int d )
+    {
+        if ( distance == null )
+            shortDistance[i] = ( char ) d;
+        else
+            distance[i] = d;
+    }
+
+    private int getDistance( int i )
+    {
+        return distance == null ? shortDistance[i] : distance[i];
+    }
+
+    private boolean inside( int x, int y )
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * True if the goal can be reached from x, y.
+     */
+    public boolean isReachable( int x, int y )
+    {
+        if ( !inside( x, y ) ) return false;
+        return ( x == goalX && y == goalY && !grid.getGrid( x, y ) ) || next[y * width + x] != NONE;
+    }
+
+    /**
+     * Number of steps from x, y to the goal, or -1 if it can't be reached.
+     */
+    public int getDistance( int x, int y )
+    {
+        return isReachable( x, y ) ? getDistance( y * width + x ) : -1;
+    }
+
+    /**
+     * Direction to move from x, y (0 = up, 1 = right, 2 = down, 3 = left),
+     * or NONE at the goal or if the goal can't be reached.
+     */
+    public int getDirection( int x, int y )
+    {
+        return inside( x, y ) ? next[y * width + x] : NONE;
+    }
+
+    /**
+     * Path from x, y to the goal, or null if it can't be reached.
+     */
+    public int[] findPath( int x, int y )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return findPath( x, y, out ) ? out.toArray() : null;
+    }
+
+    /**
+     * Writes the path from x, y to the goal into the buffer. Returns false if
+     * the goal can't be reached.
+     */
+    public boolean findPath( int x, int y, PathBuffer out )
+    {
+        out.clear();
+        if ( !isReachable( x, y ) ) return false;
+        int i = y * width + x;
+        out.setSize( getDistance( i ) );
+        int[] dirs = out.array();
+        for ( int k = 0; k < out.size(); k++ )
+        {
+            int dir = next[i];
+            dirs[k] = dir;
+            i += PathFinder.DY[dir] * width + PathFinder.DX[dir];
+        }
+        return true;
+    }
+}//FlowField
@@ -0,0 +1,703 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical path-finding (HPA*) for large grids. The grid is cut into
+ * square clusters. Where two neighboring clusters share a run of free cells
+ * along their border, one or two cells on each side become entrance nodes,
+ * and the distance between every two nodes of a cluster is stored. A query
+ * searches this small graph of nodes first and then refines it into steps
+ * one cluster at a time, only as the steps are read from the Route.
+ * <BR>
+ * The nodes are built the first time a grid is used. If the grid is an
+ * ObservablePathGrid the finder listens to it, otherwise call cellChanged
+ * after changing a cell. Only the clusters around a changed cell are rebuilt,
+ * at the start of the next query.
+ * <BR>
+ * The paths are not always the shortest, but are usually close.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class HierarchicalPathFinder extends PathFinder implements PathGridListener
+{
+
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    /** Entrances shorter than this get one node in the middle instead of one at each end. */
+    private static final int MIN_WIDE_ENTRANCE = 6;
+
+    private static final int[] EMPTY = new int[0];
+
+    /** Width and height of a cluster. */
+    private final int size;
+
+    private PathGrid grid;
+
+    private int width;
+
+    private int height;
+
+    /** Number of clusters across and down. */
+    private int cw;
+
+    private int ch;
+
+    /**
+     * For each cluster, the y of each node on the border with the cluster to
+     * its right.
+     */
+    private int[][] rightBorder;
+
+    /**
+     * For each cluster, the x of each node on the border with the cluster
+     * below it.
+     */
+    private int[][] bottomBorder;
+
+    /** For each cluster, the cell index of each of its nodes. */
+    private int[][] nodes;
+
+    /** For each cluster, the k x k distances between its k nodes. */
+    private int[][] dist;
+
+    /**
+     * Number of the first node of each cluster; the nodes are numbered
+     * cluster by cluster, and the last entry is the number of nodes.
+     */
+    private int[] firstNode;
+
+    /** Cell index of each numbered node. */
+    private int[] nodeCell;
+
+    private boolean[] dirty;
+
+    private boolean anyDirty;
+
+    /** Distances within one cluster, used while building and searching. */
+    private int[] bfsDist;
+
+    private int[] bfsQueue;
+
+    private int[] startDist;
+
+    private int[] goalDist;
+
+    public HierarchicalPathFinder()
+    {
+        this( DEFAULT_CLUSTER_SIZE );
+    }
+
+    public HierarchicalPathFinder( int clusterSize )
+    {
+        super();
+        if ( clusterSize < 2 ) throw new IllegalArgumentException( "clusterSize must be at least 2" );
+        this.size = clusterSize;
+        bfsDist = new int[size * size];
+        bfsQueue = new int[size * size];
+        startDist = new int[size * size];
+        goalDist = new int[size * size];
+    }
+
+    public int getClusterSize()
+    {
+        return size;
+    }
+
+    /**
+     * Finds a path given an array and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     *
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        Route route = findRoute( grid, x1, y1, x2, y2 );
+        if ( route == null ) return null;
+        PathBuffer out = new PathBuffer( route.length() );
+        route.fill( out, route.length() );
+        return out.toArray();
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        out.clear();
+        Route route = findRoute( grid, x1, y1, x2, y2 );
+        if ( route == null ) return false;
+        route.fill( out, route.length() );
+        return true;
+    }
+
+    /**
+     * Searches the nodes and returns the route without refining it into
+     * steps yet, or null if there is no path. The route must be read before
+     * the grid changes.
+     */
+    public Route findRoute( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        SearchStats st = beginSearch();
+        Route route = search( grid, x1, y1, x2, y2, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, route == null ? -1 : route.length() );
+        return route;
+    }
+
+    /**
+     * Finds a path but stops searching the nodes when a limit is reached,
+     * returning the path to the node found so far that is nearest the goal.
+     */
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        SearchStats st = beginSearch();
+        Route route = search( grid, x1, y1, x2, y2, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, route == null ? -1 : route.length() );
+        boolean stopped = limits.isStopped();
+        if ( route == null ) return new PathResult( null, false, stopped );
+        PathBuffer out = new PathBuffer( route.length() );
+        route.fill( out, route.length() );
+        return new PathResult( out.toArray(), stopped, stopped );
+    }
+
+    /**
+     * Searches the nodes and returns the route, or null if there is none. If
+     * a limit is reached it returns the route to the nearest node instead.
+     */
+    private Route search( PathGrid grid, int x1, int y1, int x2, int y2, SearchStats st, SearchLimits limits )
+    {
+        if ( grid == null || grid.getWidth() == 0 ) return null;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return null;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return null;
+        if ( grid != this.grid || grid.getWidth() != width || grid.getHeight() != height ) build( grid );
+        if ( anyDirty ) refresh();
+        if ( x1 == x2 && y1 == y2 ) return new Route( new int[] { y1 * width + x1 }, 0 );
+
+        int startCell = y1 * width + x1;
+        int goalCell = y2 * width + x2;
+        int startCluster = clusterOf( x1, y1 );
+        int goalCluster = clusterOf( x2, y2 );
+        clusterBfs( startCluster, x1, y1, startDist );
+        clusterBfs( goalCluster, x2, y2, goalDist );
+
+        // the search is over the numbered nodes, with the start and goal as
+        // two more unless they are nodes already.
+        int n = nodeCell.length;
+        int start = nodeOf( startCluster, startCell, n );
+        int goal = nodeOf( goalCluster, goalCell, n + 1 );
+        SearchScratch s = SearchScratch.acquire( n + 2 );
+        try
+        {
+            IndexedHeap open = s.heap;
+            s.set( start, 0, -1 );
+            open.push( start, AStarPathFinder.key( 0, x1, y1, x2, y2 ) );
+            int best = start;
+            int bestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( !open.isEmpty() )
+            {
+                int cur = open.poll();
+                if ( cur == goal ) return makeRoute( s, start, cur, startCell, goalCell );
+                int cell = cellOf( cur, startCell, goalCell );
+                int x = cell % width;
+                int y = cell / width;
+                if ( limits != null )
+                {
+                    int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+                    if ( h < bestH )
+                    {
+                        bestH = h;
+                        best = cur;
+                    }
+                    if ( limits.isReached( ++expanded ) ) return makeRoute( s, start, best, startCell, goalCell );
+                }
+                if ( st != null ) st.expand( this, x, y );
+                int c = clusterOf( x, y );
+                int g = s.g[cur];
+                int first = firstNode[c];
+                int k = cur < n ? cur - first : -1;
+                if ( cur == start && k < 0 )
+                {
+                    int[] ns = nodes[c];
+                    for ( int i = 0; i < ns.length; i++ )
+                        relax( s, st, cur, first + i, ns[i], g, startDist[local( c, ns[i] )], x2, y2 );
+                }
+                if ( k >= 0 )
+                {
+                    int[] ns = nodes[c];
+                    int[] d = dist[c];
+                    for ( int i = 0; i < ns.length; i++ )
+                        if ( i != k ) relax( s, st, cur, first + i, ns[i], g, d[k * ns.length + i], x2, y2 );
+                    for ( int dir = 0; dir < 4; dir++ )
+                    {
+                        int nx = x + DX[dir];
+                        int ny = y + DY[dir];
+                        if ( grid.getGrid( nx, ny ) ) continue;
+                        int nc = clusterOf( nx, ny );
+                        if ( nc == c ) continue;
+                        int i = indexOf( nc, ny * width + nx );
+                        if ( i >= 0 ) relax( s, st, cur, firstNode[nc] + i, ny * width + nx, g, 1, x2, y2 );
+                    }
+                }
+                if ( c == goalCluster ) relax( s, st, cur, goal, goalCell, g, goalDist[local( c, cell )], x2, y2 );
+            }
+            return null;
+        } finally
+        {
+            s.release();
+        }
+    }
+
+    /** Number of the node at the cell of cluster c, or other if it is not one. */
+    private int nodeOf( int c, int cell, int other )
+    {
+        int k = indexOf( c, cell );
+        return k < 0 ? other : firstNode[c] + k;
+    }
+
+    private void relax( SearchScratch s, SearchStats st, int from, int to, int cell, int g, int cost, int x2,
+            int y2 )
+    {
+        if ( cost < 0 || cost == Integer.MAX_VALUE ) return;
+        int ng = g + cost;
+        if ( ng >= s.getG( to ) ) return;
+        int x = cell % width;
+        int y = cell / width;
+        if ( ng + Math.abs( x2 - x ) + Math.abs( y2 - y ) > distance ) return;
+        s.set( to, ng, from );
+        s.heap.push( to, AStarPathFinder.key( ng, x, y, x2, y2 ) );
+        if ( st != null ) st.generate( s.heap.size() );
+    }
+
+    /**
+     * The cell of a numbered node, or of the start or goal when they are
+     * numbered after the nodes.
+     */
+    private int cellOf( int node, int startCell, int goalCell )
+    {
+        int n = nodeCell.length;
+        return node < n ? nodeCell[node] : node == n ? startCell : goalCell;
+    }
+
+    private Route makeRoute( SearchScratch s, int start, int end, int startCell, int goalCell )
+    {
+        int n = 1;
+        for ( int cur = end; cur != start; cur = s.link[cur] )
+            n++;
+        int[] cells = new int[n];
+        for ( int cur = end; n > 0; cur = s.link[cur] )
+            cells[--n] = cellOf( cur, startCell, goalCell );
+        return new Route( cells, s.g[end] );
+    }
+
+    /**
+     * Numbers the nodes cluster by cluster, after the nodes of any cluster
+     * have changed.
+     */
+    private void numberNodes()
+    {
+        int n = 0;
+        for ( int c = 0; c < nodes.length; c++ )
+        {
+            firstNode[c] = n;
+            n += nodes[c].length;
+        }
+        firstNode[nodes.length] = n;
+        nodeCell = new int[n];
+        for ( int c = 0; c < nodes.length; c++ )
+            System.arraycopy( nodes[c], 0, nodeCell, firstNode[c], nodes[c].length );
+    }
+
+    /**
+     * Marks the clusters around the cell to be rebuilt before the next query.
+     */
+    public void cellChanged( PathGrid grid, int x, int y, boolean blocked )
+    {
+        if ( grid != this.grid || dirty == null ) return;
+        if ( x < 0 || y < 0 || x >= width || y >= height ) return;
+        dirty[clusterOf( x, y )] = true;
+        anyDirty = true;
+    }
+
+    private void build( PathGrid grid )
+    {
+        cellCount( grid ); // the nodes are cell indexes.
+        if ( this.grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) this.grid ).removeListener( this );
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        cw = ( width + size - 1 ) / size;
+        ch = ( height + size - 1 ) / size;
+        int n = cw * ch;
+        rightBorder = new int[n][];
+        bottomBorder = new int[n][];
+        nodes = new int[n][];
+        dist = new int[n][];
+        firstNode = new int[n + 1];
+        dirty = new boolean[n];
+        anyDirty = false;
+        for ( int c = 0; c < n; c++ )
+        {
+            rightBorder[c] = findRightBorder( c );
+            bottomBorder[c] = findBottomBorder( c );
+        }
+        for ( int c = 0; c < n; c++ )
+            buildCluster( c );
+        numberNodes();
+        if ( grid instanceof ObservablePathGrid ) ( ( ObservablePathGrid ) grid ).addListener( this );
+    }
+
+    /**
+     * Rebuilds the borders of the dirty clusters, then the nodes and distances
+     * of the dirty clusters and of the neighbors whose shared border changed.
+     */
+    private void refresh()
+    {
+        boolean[] rebuild = new boolean[dirty.length];
+        for ( int c = 0; c < dirty.length; c++ )
+        {
+            if ( !dirty[c] ) continue;
+            rebuild[c] = true;
+            int cx = c % cw;
+            int cy = c / cw;
+            if ( updateRightBorder( c ) ) rebuild[c + 1] = true;
+            if ( updateBottomBorder( c ) ) rebuild[c + cw] = true;
+            if ( cx > 0 && updateRightBorder( c - 1 ) ) rebuild[c - 1] = true;
+            if ( cy > 0 && updateBottomBorder( c - cw ) ) rebuild[c - cw] = true;
+        }
+        for ( int c = 0; c < rebuild.length; c++ )
+            if ( rebuild[c] ) buildCluster( c );
+        numberNodes();
+        Arrays.fill( dirty, false );
+        anyDirty = false;
+    }
+
+    private boolean updateRightBorder( int c )
+    {
+        int[] b = findRightBorder( c );
+        if ( Arrays.equals( b, rightBorder[c] ) ) return false;
+        rightBorder[c] = b;
+        return true;
+    }
+
+    private boolean updateBottomBorder( int c )
+    {
+        int[] b = findBottomBorder( c );
+        if ( Arrays.equals( b, bottomBorder[c] ) ) return false;
+        bottomBorder[c] = b;
+        return true;
+    }
+
+    /**
+     * The y of each node on the right edge of cluster c.
+     */
+    private int[] findRightBorder( int c )
+    {
+        int cx = c % cw;
+        if ( cx == cw - 1 ) return EMPTY;
+        int x = ( cx + 1 ) * size - 1;
+        int y0 = ( c / cw ) * size;
+        int y1 = Math.min( height, y0 + size );
+        PathBuffer ret = new PathBuffer( 4 );
+        int run = -1;
+        for ( int y = y0; y <= y1; y++ )
+        {
+            boolean open = y < y1 && !grid.getGrid( x, y ) && !grid.getGrid( x + 1, y );
+            if ( open && run < 0 ) run = y;
+            if ( !open && run >= 0 )
+            {
+                addEntrance( ret, run, y - 1 );
+                run = -1;
+            }
+        }
+        return ret.toArray();
+    }
+
+    /**
+     * The x of each node on the bottom edge of cluster c.
+     */
+    private int[] findBottomBorder( int c )
+    {
+        int cy = c / cw;
+        if ( cy == ch - 1 ) return EMPTY;
+        int y = ( cy + 1 ) * size - 1;
+        int x0 = ( c % cw ) * size;
+        int x1 = Math.min( width, x0 + size );
+        PathBuffer ret = new PathBuffer( 4 );
+        int run = -1;
+        for ( int x = x0; x <= x1; x++ )
+        {
+            boolean open = x < x1 && !grid.getGrid( x, y ) && !grid.getGrid( x, y + 1 );
+            if ( open && run < 0 ) run = x;
+            if ( !open && run >= 0 )
+            {
+                addEntrance( ret, run, x - 1 );
+                run = -1;
+            }
+        }
+        return ret.toArray();
+    }
+
+    private static void addEntrance( PathBuffer ret, int first, int last )
+    {
+        if ( last - first + 1 < MIN_WIDE_ENTRANCE )
+        {
+            ret.add( ( first + last ) / 2 );
+        } else
+        {
+            ret.add( first );
+            ret.add( last );
+        }
+    }
+
+    /**
+     * Collects the nodes of cluster c from its four borders and finds the
+     * distance between each two of them inside the cluster.
+     */
+    private void buildCluster( int c )
+    {
+        int cx = c % cw;
+        int cy = c / cw;
+        int x0 = cx * size;
+        int y0 = cy * size;
+        PathBuffer cells = new PathBuffer( 8 );
+        if ( cx > 0 ) for ( int y : rightBorder[c - 1] )
+            addNode( cells, y * width + x0 );
+        for ( int y : rightBorder[c] )
+            addNode( cells, y * width + x0 + size - 1 );
+        if ( cy > 0 ) for ( int x : bottomBorder[c - cw] )
+            addNode( cells, y0 * width + x );
+        for ( int x : bottomBorder[c] )
+            addNode( cells, ( y0 + size - 1 ) * width + x );
+
+        int k = cells.size();
+        int[] ns = cells.toArray();
+        int[] d = new int[k * k];
+        for ( int i = 0; i < k; i++ )
+        {
+            clusterBfs( c, ns[i] % width, ns[i] / width, bfsDist );
+            for ( int j = 0; j < k; j++ )
+            {
+                int dj = bfsDist[local( c, ns[j] )];
+                d[i * k + j] = dj < 0 ? Integer.MAX_VALUE : dj;
+            }
+        }
+        nodes[c] = ns;
+        dist[c] = d;
+    }
+
+    private static void addNode( PathBuffer cells, int cell )
+    {
+        int[] a = cells.array();
+        for ( int i = 0; i < cells.size(); i++ )
+            if ( a[i] == cell ) return;
+        cells.add( cell );
+    }
+
+    private int clusterOf( int x, int y )
+    {
+        return ( y / size ) * cw + x / size;
+    }
+
+    /** Index of a cell within its cluster's size x size square. */
+    private int local( int c, int cell )
+    {
+        int x = cell % width - ( c % cw ) * size;
+        int y = cell / width - ( c / cw ) * size;
+        return y * size + x;
+    }
+
+    /** Index of the cell among the nodes of cluster c, or -1. */
+    private int indexOf( int c, int cell )
+    {
+        int[] ns = nodes[c];
+        for ( int i = 0; i < ns.length; i++ )
+            if ( ns[i] == cell ) return i;
+        return -1;
+    }
+
+    /**
+     * Breadth-first search from x, y that stays inside cluster c. Fills d,
+     * indexed by local(), with the distances, or -1 where not reachable.
+     */
+    private void clusterBfs( int c, int x, int y, int[] d )
+    {
+        clusterBfs( grid, width, height, size, c, x, y, d, bfsQueue );
+    }
+
+    private static void clusterBfs( PathGrid grid, int width, int height, int size, int c, int x, int y, int[] d,
+            int[] queue )
+    {
+        int cw = ( width + size - 1 ) / size;
+        int x0 = ( c % cw ) * size;
+        int y0 = ( c / cw ) * size;
+        int x1 = Math.min( width, x0 + size );
+        int y1 = Math.min( height, y0 + size );
+        Arrays.fill( d, -1 );
+        int head = 0;
+        int tail = 0;
+        int first = ( y - y0 ) * size + ( x - x0 );
+        d[first] = 0;
+        queue[tail++] = first;
+        while ( head < tail )
+        {
+            int cur = queue[head++];
+            int lx = cur % size;
+            int ly = cur / size;
+            for ( int dir = 0; dir < 4; dir++ )
+            {
+                int nx = lx + DX[dir];
+                int ny = ly + DY[dir];
+                if ( nx < 0 || ny < 0 || x0 + nx >= x1 || y0 + ny >= y1 ) continue;
+                int next = ny * size + nx;
+                if ( d[next] >= 0 || grid.getGrid( x0 + nx, y0 + ny ) ) continue;
+                d[next] = d[cur] + 1;
+                queue[tail++] = next;
+            }
+        }
+    }
+
+    /**
+     * A path found by findRoute, made of the cells where it crosses from one
+     * cluster to the next. The steps between them are worked out as they are
+     * read, one cluster at a time. It keeps the grid and its size from the
+     * query, so it can still be read after the finder has searched another
+     * grid.
+     */
+    public class Route
+    {
+
+        private final PathGrid grid = HierarchicalPathFinder.this.grid;
+
+        private final int width = HierarchicalPathFinder.this.width;
+
+        private final int height = HierarchicalPathFinder.this.height;
+
+        private final int cw = HierarchicalPathFinder.this.cw;
+
+        private final int[] cells;
+
+        private final int length;
+
+        /** Index of the cell the current segment ends at. */
+        private int seg;
+
+        /** Steps of the current segment. */
+        private final PathBuffer steps = new PathBuffer();
+
+        private int pos;
+
+        private int read;
+
+        private final int[] segDist = new int[size * size];
+
+        private final int[] queue = new int[size * size];
+
+        Route( int[] cells, int length )
+        {
+            this.cells = cells;
+            this.length = length;
+        }
+
+        /** Number of steps in the whole path. */
+        public int length()
+        {
+            return length;
+        }
+
+        /** Number of steps read so far. */
+        public int getRead()
+        {
+            return read;
+        }
+
+        /**
+         * The cells the route passes through at the cluster level, as x, y
+         * pairs from the start to the goal.
+         */
+        public int[] getWaypoints()
+        {
+            int[] ret = new int[cells.length * 2];
+            for ( int i = 0; i < cells.length; i++ )
+            {
+                ret[2 * i] = cells[i] % width;
+                ret[2 * i + 1] = cells[i] / width;
+            }
+            return ret;
+        }
+
+        public boolean hasNext()
+        {
+            return read < length;
+        }
+
+        /** The next direction of the path. */
+        public int next()
+        {
+            while ( pos == steps.size() )
+                refine();
+            read++;
+            return steps.get( pos++ );
+        }
+
+        /**
+         * Appends up to max of the next steps to out and returns how many were
+         * added.
+         */
+        public int fill( PathBuffer out, int max )
+        {
+            int n = 0;
+            while ( n < max && hasNext() )
+            {
+                out.add( next() );
+                n++;
+            }
+            return n;
+        }
+
+        /**
+         * Works out the steps from cells[seg] to cells[seg + 1].
+         */
+        private void refine()
+        {
+            steps.clear();
+            pos = 0;
+            int a = cells[seg];
+            int b = cells[++seg];
+            int ax = a % width;
+            int ay = a / width;
+            int bx = b % width;
+            int by = b / width;
+            int c = ( by / size ) * cw + bx / size;
+            if ( ( ay / size ) * cw + ax / size != c )
+            {
+                for ( int dir = 0; dir < 4; dir++ )
+                    if ( ax + DX[dir] == bx && ay + DY[dir] == by ) steps.add( dir );
+                return;
+            }
+            clusterBfs( grid, width, height, size, c, bx, by, segDist, queue );
+            int x0 = ( c % cw ) * size;
+            int y0 = ( c / cw ) * size;
+            int x = ax;
+            int y = ay;
+            for ( int d = segDist[( ay - y0 ) * size + ( ax - x0 )]; d > 0; d-- )
+            {
+                for ( int dir = 0; dir < 4; dir++ )
+                {
+                    int nx = x + DX[dir];
+                    int ny = y + DY[dir];
+                    if ( nx < x0 || ny < y0 || nx >= x0 + size || ny >= y0 + size || nx >= width || ny >= height )
+                        continue;
+                    if ( segDist[( ny - y0 ) * size + ( nx - x0 )] == d - 1 )
+                    {
+                        steps.add( dir );
+                        x = nx;
+                        y = ny;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+}//HierarchicalPathFinder
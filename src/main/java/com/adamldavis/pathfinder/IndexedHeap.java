@@ -0,0 +1,175 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int nodes in the range [0, capacity) with long keys. The
+ * heap keeps the position of every node so a key can be decreased in place.
+ * Nothing is boxed and nothing is allocated after construction.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+class IndexedHeap
+{
+
+    /** Nodes in heap order. */
+    private final int[] heap;
+
+    /** Position of each node in heap, or -1 if it is not in the heap. */
+    private final int[] pos;
+
+    /** Key of each node, only valid while it is in the heap. */
+    private final long[] keys;
+
+    private int size;
+
+    IndexedHeap( int capacity )
+    {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        keys = new long[capacity];
+        Arrays.fill( pos, -1 );
+    }
+
+    int capacity()
+    {
+        return heap.length;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    boolean contains( int node )
+    {
+        return pos[node] >= 0;
+    }
+
+    long getKey( int node )
+    {
+        return keys[node];
+    }
+
+    long peekKey()
+    {
+        return keys[heap[0]];
+    }
+
+    int peek()
+    {
+        return heap[0];
+    }
+
+    /**
+     * Adds the node, or changes its key if it is already in the heap.
+     */
+    void push( int node, long key )
+    {
+        int i = pos[node];
+        if ( i < 0 )
+        {
+            i = size++;
+            heap[i] = node;
+            pos[node] = i;
+            keys[node] = key;
+            up( i );
+        } else
+        {
+            long old = keys[node];
+            keys[node] = key;
+            if ( key < old )
+                up( i );
+            else
+                down( i );
+        }
+    }
+
+    /** Removes and returns the node with the smallest key. */
+    int poll()
+    {
+        int node = heap[0];
+        pos[node] = -1;
+        size--;
+        if ( size > 0 )
+        {
+            int last = heap[size];
+            heap[0] = last;
+            pos[last] = 0;
+            down( 0 );
+        }
+        return node;
+    }
+
+    /** Removes the node if it is in the heap. */
+    void remove( int node )
+    {
+        int i = pos[node];
+        if ( i < 0 ) return;
+        pos[node] = -1;
+        size--;
+        if ( i < size )
+        {
+            int last = heap[size];
+            heap[i] = last;
+            pos[last] = i;
+            up( i );
+            down( pos[last] );
+        }
+    }
+
+    /** Empties the heap in time proportional to its size. */
+    void clear()
+    {
+        for ( int i = 0; i < size; i++ )
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void up( int i )
+    {
+        int node = heap[i];
+        long key = keys[node];
+        while ( i > 0 )
+        {
+            int parent = ( i - 1 ) >>> 1;
+            int p = heap[parent];
+            if ( keys[p] <= key ) break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        pos[node] = i;
+    }
+
+    private void down( int i )
+    {
+        int node = heap[i];
+        long key = keys[node];
+        int half = size >>> 1;
+        while ( i < half )
+        {
+            int child = 2 * i + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if ( right < size && keys[heap[right]] < keys[c] )
+            {
+                child = right;
+                c = heap[child];
+            }
+            if ( key <= keys[c] ) break;
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = node;
+        pos[node] = i;
+    }
+}//IndexedHeap
@@ -0,0 +1,331 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Jump Point Search for 4-connected grids where every step costs the same.
+ * Instead of adding every neighbor to the open list it jumps along straight
+ * lines and only stops at the goal or at cells where a turn might be needed,
+ * so large open areas cost very few expansions. The path it finds is as short
+ * as the one from AStarPathFinder and is returned in the same int[] form.
+ * <BR>
+ * On a BitPathGrid the horizontal jumps check 64 cells at a time. Like
+ * AStarPathFinder it is thread-safe and takes its arrays from a pool kept per
+ * thread.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class JumpPointPathFinder extends PathFinder
+{
+
+    public JumpPointPathFinder()
+    {
+        super();
+    }
+
+    /**
+     * Initializes this pathfinder with a maximum possible distance for a path.
+     * @param maxDistance Maximum possible distance of a path in the grid.
+     */
+    public JumpPointPathFinder( int maxDistance )
+    {
+        super( maxDistance );
+    }
+
+    /**
+     * Finds a shortest path given an array and a starting point and end point.
+     * Returns path in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     * 
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        return findPath( grid, x1, y1, x2, y2, out ) ? out.toArray() : null;
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        return found;
+    }
+
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        PathBuffer out = new PathBuffer( 0 );
+        SearchStats st = beginSearch();
+        boolean found = search( grid, x1, y1, x2, y2, out, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, found ? out.size() : -1 );
+        boolean stopped = limits.isStopped();
+        return new PathResult( found ? out.toArray() : null, found && stopped, stopped );
+    }
+
+    /**
+     * Writes the path into out and returns true, or returns false if there is
+     * none. If a limit is reached it writes a partial path instead.
+     */
+    private boolean search( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out, SearchStats st,
+            SearchLimits limits )
+    {
+        out.clear();
+        if ( grid == null || grid.getWidth() == 0 ) return false;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return false;
+        if ( x1 == x2 && y1 == y2 ) return true;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return false;
+
+        int w = grid.getWidth();
+        SearchScratch s = SearchScratch.acquire( cellCount( grid ) );
+        try
+        {
+            IndexedHeap open = s.heap;
+            if ( s.jumper == null ) s.jumper = new Jumper();
+            Jumper jumper = s.jumper;
+            jumper.reset( grid, x2, y2 );
+
+            int start = y1 * w + x1;
+            int goal = y2 * w + x2;
+            s.set( start, 0, -1 );
+            open.push( start, AStarPathFinder.key( 0, x1, y1, x2, y2 ) );
+            int best = start;
+            int bestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( !open.isEmpty() )
+            {
+                int cur = open.poll();
+                if ( cur == goal )
+                {
+                    makePath( s, w, goal, out );
+                    return true;
+                }
+                int x = cur % w;
+                int y = cur / w;
+                if ( limits != null )
+                {
+                    int h = Math.abs( x2 - x ) + Math.abs( y2 - y );
+                    if ( h < bestH )
+                    {
+                        bestH = h;
+                        best = cur;
+                    }
+                    if ( limits.isReached( ++expanded ) )
+                    {
+                        makePath( s, w, best, out );
+                        return true;
+                    }
+                }
+                if ( st != null ) st.expand( this, x, y );
+                int back = -1; // the direction back to the parent is pruned.
+                if ( s.link[cur] >= 0 ) back = direction( s.link[cur], cur, w ) ^ 2;
+                for ( int dir = 0; dir < 4; dir++ )
+                {
+                    if ( dir == back ) continue;
+                    int next = jumper.jump( x, y, dir );
+                    if ( next < 0 ) continue;
+                    int nx = next % w;
+                    int ny = next / w;
+                    int ng = s.g[cur] + Math.abs( nx - x ) + Math.abs( ny - y );
+                    if ( ng >= s.getG( next ) ) continue;
+                    if ( ng + Math.abs( x2 - nx ) + Math.abs( y2 - ny ) > distance ) continue;
+                    s.set( next, ng, cur );
+                    open.push( next, AStarPathFinder.key( ng, nx, ny, x2, y2 ) );
+                    if ( st != null ) st.generate( open.size() );
+                }
+            }
+            return false;
+        } finally
+        {
+            s.jumper.reset( null, 0, 0 );
+            s.release();
+        }
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /** Direction of the straight line from cell a to cell b. */
+    private static int direction( int a, int b, int w )
+    {
+        int ax = a % w;
+        int bx = b % w;
+        if ( bx > ax ) return 1;
+        if ( bx < ax ) return 3;
+        return b > a ? 2 : 0;
+    }
+
+    /**
+     * Expands the straight segments between the jump points into single steps.
+     */
+    private static void makePath( SearchScratch s, int w, int goal, PathBuffer out )
+    {
+        out.setSize( s.g[goal] );
+        int[] ret = out.array();
+        int i = out.size();
+        for ( int cur = goal; s.link[cur] >= 0; cur = s.link[cur] )
+        {
+            int parent = s.link[cur];
+            int dir = direction( parent, cur, w );
+            for ( int k = s.g[cur] - s.g[parent]; k > 0; k-- )
+                ret[--i] = dir;
+        }
+    }
+
+    /**
+     * Does the jumping for one query. It is kept in the SearchScratch and
+     * reset for each query.
+     */
+    static class Jumper
+    {
+
+        PathGrid grid;
+
+        BitPathGrid bits;
+
+        int width;
+
+        int height;
+
+        int x2;
+
+        int y2;
+
+        /** Bits past the width in the last word of a row, which are blocked. */
+        long tail;
+
+        void reset( PathGrid grid, int x2, int y2 )
+        {
+            this.grid = grid;
+            PathGrid inner = grid instanceof ObservablePathGrid ? ( ( ObservablePathGrid ) grid ).getDelegate()
+                    : grid;
+            this.bits = inner instanceof BitPathGrid ? ( BitPathGrid ) inner : null;
+            this.width = grid == null ? 0 : grid.getWidth();
+            this.height = grid == null ? 0 : grid.getHeight();
+            this.x2 = x2;
+            this.y2 = y2;
+            this.tail = width % 64 == 0 ? 0L : -1L << width;
+        }
+
+        /**
+         * Jumps from x, y in the given direction and returns the cell index of
+         * the jump point, or -1 if it runs into an obstacle first.
+         */
+        int jump( int x, int y, int dir )
+        {
+            if ( dir == 1 || dir == 3 )
+            {
+                int jx = dir == 1 ? right( x + 1, y ) : left( x - 1, y );
+                return jx < 0 ? -1 : y * width + jx;
+            }
+            int dy = DY[dir];
+            for ( int cy = y + dy;; cy += dy )
+            {
+                if ( grid.getGrid( x, cy ) ) return -1;
+                if ( x == x2 && cy == y2 ) return cy * width + x;
+                if ( !grid.getGrid( x - 1, cy ) && grid.getGrid( x - 1, cy - dy )
+                        || !grid.getGrid( x + 1, cy ) && grid.getGrid( x + 1, cy - dy ) )
+                    return cy * width + x;
+                // a turn here may be needed to reach a jump point to the side.
+                if ( right( x + 1, cy ) >= 0 || left( x - 1, cy ) >= 0 ) return cy * width + x;
+            }
+        }
+
+        /**
+         * Scans right from x0 and returns the x of the first jump point, or
+         * -1 if an obstacle comes first.
+         */
+        int right( int x0, int y )
+        {
+            if ( bits != null ) return bitsRight( x0, y );
+            for ( int x = x0;; x++ )
+            {
+                if ( grid.getGrid( x, y ) ) return -1;
+                if ( x == x2 && y == y2 ) return x;
+                if ( !grid.getGrid( x, y - 1 ) && grid.getGrid( x - 1, y - 1 ) || !grid.getGrid( x, y + 1 )
+                        && grid.getGrid( x - 1, y + 1 ) ) return x;
+            }
+        }
+
+        /**
+         * Scans left from x0 and returns the x of the first jump point, or -1
+         * if an obstacle comes first.
+         */
+        int left( int x0, int y )
+        {
+            if ( bits != null ) return bitsLeft( x0, y );
+            for ( int x = x0;; x-- )
+            {
+                if ( grid.getGrid( x, y ) ) return -1;
+                if ( x == x2 && y == y2 ) return x;
+                if ( !grid.getGrid( x, y - 1 ) && grid.getGrid( x + 1, y - 1 ) || !grid.getGrid( x, y + 1 )
+                        && grid.getGrid( x + 1, y + 1 ) ) return x;
+            }
+        }
+
+        /**
+         * Word n of row y with every cell outside the grid blocked.
+         */
+        private long word( int y, int n )
+        {
+            if ( y < 0 || y >= height || n < 0 || n >= bits.getStride() ) return -1L;
+            long w = bits.getWord( y, n );
+            return n == bits.getStride() - 1 ? w | tail : w;
+        }
+
+        /**
+         * Same as right(x0, y) but a word at a time. A cell forces a jump
+         * point if the cell above (or below) is free while the one before
+         * it is blocked.
+         */
+        private int bitsRight( int x0, int y )
+        {
+            if ( x0 < 0 || x0 >= width || y < 0 || y >= height ) return -1;
+            for ( int n = x0 >>> 6; n < bits.getStride(); n++ )
+            {
+                long row = word( y, n );
+                long above = word( y - 1, n );
+                long below = word( y + 1, n );
+                long before = ( above << 1 ) | ( word( y - 1, n - 1 ) >>> 63 );
+                long beforeBelow = ( below << 1 ) | ( word( y + 1, n - 1 ) >>> 63 );
+                long stop = row | ( ~above & before ) | ( ~below & beforeBelow );
+                if ( y == y2 && x2 >>> 6 == n ) stop |= 1L << x2;
+                if ( n == x0 >>> 6 ) stop &= -1L << x0;
+                if ( stop != 0 )
+                {
+                    int bit = Long.numberOfTrailingZeros( stop );
+                    return ( row & ( 1L << bit ) ) != 0 ? -1 : ( n << 6 ) + bit;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Same as left(x0, y) but a word at a time.
+         */
+        private int bitsLeft( int x0, int y )
+        {
+            if ( x0 < 0 || x0 >= width || y < 0 || y >= height ) return -1;
+            for ( int n = x0 >>> 6; n >= 0; n-- )
+            {
+                long row = word( y, n );
+                long above = word( y - 1, n );
+                long below = word( y + 1, n );
+                long after = ( above >>> 1 ) | ( word( y - 1, n + 1 ) << 63 );
+                long afterBelow = ( below >>> 1 ) | ( word( y + 1, n + 1 ) << 63 );
+                long stop = row | ( ~above & after ) | ( ~below & afterBelow );
+                if ( y == y2 && x2 >>> 6 == n ) stop |= 1L << x2;
+                if ( n == x0 >>> 6 ) stop &= -1L >>> ( 63 - ( x0 & 63 ) );
+                if ( stop != 0 )
+                {
+                    int bit = 63 - Long.numberOfLeadingZeros( stop );
+                    return ( row & ( 1L << bit ) ) != 0 ? -1 : ( n << 6 ) + bit;
+                }
+            }
+            return -1;
+        }
+    }
+
+}//JumpPointPathFinder
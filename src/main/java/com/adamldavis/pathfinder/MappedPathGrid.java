@@ -0,0 +1,257 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A grid kept in a memory-mapped file instead of on the heap, for maps too
+ * big to load. The cells are stored like a BitPathGrid: one bit per cell,
+ * each row starting on a new long, after a 16 byte header (magic, width,
+ * height and a reserved int, all little-endian). Opening a file only maps
+ * it, the operating system reads pages in as they are used, and processes
+ * that open the same file read-only share the same pages of memory.
+ * <BR>
+ * Use create to make a new file, empty or copied from another grid, and open
+ * to map an existing one. setGrid needs the file to be opened writable. The
+ * mapping stays valid until the grid is garbage collected, even after
+ * close().
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class MappedPathGrid implements PathGrid, Closeable
+{
+
+    /** "PGRM" */
+    static final int MAGIC = 0x5047524D;
+
+    static final int HEADER = 16;
+
+    /** Largest part of the file mapped at once, in bytes. */
+    private static final long SEGMENT = 1L << 30;
+
+    private final FileChannel channel;
+
+    private final boolean writable;
+
+    private final int width;
+
+    private final int height;
+
+    /** Number of longs per row. */
+    private final int stride;
+
+    /** Rows in each mapped segment. */
+    private final int rowsPerSegment;
+
+    private final MappedByteBuffer[] maps;
+
+    private final LongBuffer[] segments;
+
+    private MappedPathGrid( FileChannel channel, boolean writable ) throws IOException
+    {
+        this.channel = channel;
+        this.writable = writable;
+        ByteBuffer header = ByteBuffer.allocate( HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+        while ( header.hasRemaining() )
+            if ( channel.read( header, header.position() ) < 0 ) throw new IOException( "not a grid file" );
+        header.flip();
+        if ( header.getInt() != MAGIC ) throw new IOException( "not a grid file" );
+        width = header.getInt();
+        height = header.getInt();
+        if ( width < 0 || height < 0 ) throw new IOException( "bad size " + width + "x" + height );
+        stride = ( width + 63 ) >>> 6;
+        if ( channel.size() < HEADER + stride * 8L * height ) throw new IOException( "file is too short" );
+
+        rowsPerSegment = stride == 0 ? Math.max( height, 1 ) : ( int ) Math.max( 1, SEGMENT / ( stride * 8L ) );
+        int n = stride == 0 ? 0 : ( height + rowsPerSegment - 1 ) / rowsPerSegment;
+        maps = new MappedByteBuffer[n];
+        segments = new LongBuffer[n];
+        MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+        for ( int i = 0; i < n; i++ )
+        {
+            int rows = Math.min( rowsPerSegment, height - i * rowsPerSegment );
+            long pos = HEADER + ( long ) i * rowsPerSegment * stride * 8L;
+            maps[i] = channel.map( mode, pos, ( long ) rows * stride * 8L );
+            segments[i] = maps[i].order( ByteOrder.LITTLE_ENDIAN ).asLongBuffer();
+        }
+    }
+
+    /**
+     * Maps an existing grid file.
+     *
+     * @param writable
+     *            False to map it read-only, which lets processes share it.
+     */
+    public static MappedPathGrid open( Path file, boolean writable ) throws IOException
+    {
+        FileChannel channel = writable ? FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE )
+                : FileChannel.open( file, StandardOpenOption.READ );
+        try
+        {
+            return new MappedPathGrid( channel, writable );
+        } catch ( IOException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates (or replaces) a file for a grid with no obstacles and maps it
+     * writable.
+     */
+    public static MappedPathGrid create( Path file, int width, int height ) throws IOException
+    {
+        if ( width < 0 || height < 0 ) throw new IllegalArgumentException( "bad size " + width + "x" + height );
+        FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE );
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate( HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+            header.putInt( MAGIC ).putInt( width ).putInt( height ).putInt( 0 ).flip();
+            while ( header.hasRemaining() )
+                channel.write( header, header.position() );
+            long size = HEADER + ( ( width + 63 ) >>> 6 ) * 8L * height;
+            // writing the last byte makes the file full size, mostly unallocated.
+            if ( size > HEADER ) channel.write( ByteBuffer.allocate( 1 ), size - 1 );
+            return new MappedPathGrid( channel, true );
+        } catch ( IOException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates (or replaces) a file with a copy of the given grid and maps it
+     * writable. A BitPathGrid or MappedPathGrid is copied a word at a time.
+     */
+    public static MappedPathGrid create( Path file, PathGrid grid ) throws IOException
+    {
+        MappedPathGrid mapped = create( file, grid.getWidth(), grid.getHeight() );
+        for ( int y = 0; y < mapped.height; y++ )
+        {
+            for ( int n = 0; n < mapped.stride; n++ )
+            {
+                long word;
+                if ( grid instanceof BitPathGrid )
+                    word = ( ( BitPathGrid ) grid ).getWord( y, n );
+                else if ( grid instanceof MappedPathGrid )
+                    word = ( ( MappedPathGrid ) grid ).getWord( y, n );
+                else
+                {
+                    word = 0;
+                    int end = Math.min( 64, mapped.width - ( n << 6 ) );
+                    for ( int i = 0; i < end; i++ )
+                        if ( grid.getGrid( ( n << 6 ) + i, y ) ) word |= 1L << i;
+                }
+                if ( word != 0 ) mapped.putWord( y, n, word );
+            }
+        }
+        return mapped;
+    }
+
+    public boolean getGrid( int x, int y )
+    {
+        if ( x < 0 || y < 0 ) return true; //true means it is an obstacle.
+        if ( x >= width || y >= height ) return true;
+        return ( getWord( y, x >>> 6 ) & ( 1L << x ) ) != 0;
+    }
+
+    public void setGrid( int x, int y, boolean yes )
+    {
+        if ( !writable ) throw new UnsupportedOperationException( "the grid is mapped read-only" );
+        if ( x < 0 || y < 0 || x >= width || y >= height )
+            throw new ArrayIndexOutOfBoundsException( x + "," + y );
+        long word = getWord( y, x >>> 6 );
+        putWord( y, x >>> 6, yes ? word | ( 1L << x ) : word & ~( 1L << x ) );
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public boolean isWritable()
+    {
+        return writable;
+    }
+
+    /** Number of longs used for each row. */
+    public int getStride()
+    {
+        return stride;
+    }
+
+    /**
+     * Returns the given word of row y, bit i of word n is the cell at
+     * x = n * 64 + i. Bits past the width are always zero.
+     */
+    public long getWord( int y, int n )
+    {
+        return segments[y / rowsPerSegment].get( ( y % rowsPerSegment ) * stride + n );
+    }
+
+    private void putWord( int y, int n, long word )
+    {
+        segments[y / rowsPerSegment].put( ( y % rowsPerSegment ) * stride + n, word );
+    }
+
+    /**
+     * Copies the cells into a BitPathGrid on the heap.
+     */
+    public PathGrid copy()
+    {
+        long[] words = new long[stride * height];
+        int pos = 0;
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            LongBuffer segment = segments[i].duplicate();
+            segment.position( 0 );
+            int len = segment.remaining();
+            segment.get( words, pos, len );
+            pos += len;
+        }
+        return new BitPathGrid( width, height, words );
+    }
+
+    /** Writes any changes out to the file. */
+    public void force()
+    {
+        if ( writable ) for ( MappedByteBuffer map : maps )
+            map.force();
+    }
+
+    /** Writes out any changes and closes the file. */
+    public void close() throws IOException
+    {
+        force();
+        channel.close();
+    }
+
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( ( width + 1 ) * height );
+        for ( int j = 0; j < height; j++ )
+        {
+            for ( int i = 0; i < width; i++ )
+                str.append( getGrid( i, j ) ? '#' : '-' );
+            str.append( '\n' );
+        }
+        return str.toString();
+    }
+}//MappedPathGrid
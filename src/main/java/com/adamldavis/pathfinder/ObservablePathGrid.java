@@ -0,0 +1,83 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps a PathGrid and tells its listeners about every cell that setGrid
+ * actually changes. It also counts the changes so that anything computed
+ * from the grid can tell when it is out of date.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class ObservablePathGrid implements PathGrid
+{
+
+    private final PathGrid grid;
+
+    private final CopyOnWriteArrayList<PathGridListener> listeners = new CopyOnWriteArrayList<PathGridListener>();
+
+    private volatile int modCount;
+
+    public ObservablePathGrid( PathGrid grid )
+    {
+        this.grid = grid;
+    }
+
+    /** The wrapped grid. Changing it directly is not seen by the listeners. */
+    public PathGrid getDelegate()
+    {
+        return grid;
+    }
+
+    public void addListener( PathGridListener listener )
+    {
+        listeners.addIfAbsent( listener );
+    }
+
+    public void removeListener( PathGridListener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /** Number of cells changed since this was made. */
+    public int getModCount()
+    {
+        return modCount;
+    }
+
+    public boolean getGrid( int x, int y )
+    {
+        return grid.getGrid( x, y );
+    }
+
+    public void setGrid( int x, int y, boolean yes )
+    {
+        if ( grid.getGrid( x, y ) == yes ) return;
+        grid.setGrid( x, y, yes );
+        modCount++;
+        for ( PathGridListener listener : listeners )
+            listener.cellChanged( this, x, y, yes );
+    }
+
+    public int getWidth()
+    {
+        return grid.getWidth();
+    }
+
+    public int getHeight()
+    {
+        return grid.getHeight();
+    }
+
+    /** Copies the cells, but not the listeners. */
+    public PathGrid copy()
+    {
+        return new ObservablePathGrid( grid.copy() );
+    }
+
+    public String toString()
+    {
+        return grid.toString();
+    }
+}//ObservablePathGrid
@@ -0,0 +1,68 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * The paths of a batch of queries in one array of directions. Path i is the
+ * directions from getOffset(i) up to getOffset(i + 1).
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class PackedPaths
+{
+
+    private final int[] directions;
+
+    private final int[] offsets;
+
+    private final boolean[] found;
+
+    PackedPaths( int[] directions, int[] offsets, boolean[] found )
+    {
+        this.directions = directions;
+        this.offsets = offsets;
+        this.found = found;
+    }
+
+    /** Number of queries. */
+    public int size()
+    {
+        return found.length;
+    }
+
+    /** All of the directions, path after path. */
+    public int[] getDirections()
+    {
+        return directions;
+    }
+
+    /** Start of each path in getDirections(), size() + 1 entries. */
+    public int[] getOffsets()
+    {
+        return offsets;
+    }
+
+    public int getOffset( int i )
+    {
+        return offsets[i];
+    }
+
+    /** False if no path was found for query i. */
+    public boolean isFound( int i )
+    {
+        return found[i];
+    }
+
+    public int getLength( int i )
+    {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /** Copies path i out, or returns null if it was not found. */
+    public int[] getPath( int i )
+    {
+        if ( !found[i] ) return null;
+        int[] ret = new int[getLength( i )];
+        System.arraycopy( directions, offsets[i], ret, 0, ret.length );
+        return ret;
+    }
+}//PackedPaths
@@ -34,6 +34,17 @@ public class Path extends LinkedList
         return ret;
     }
 
+    /** Copies this path into a CompactPath. */
+    public CompactPath toCompactPath()
+    {
+        CompactPath ret = new CompactPath( super.size() );
+        for ( Iterator iter = super.iterator(); iter.hasNext(); )
+        {
+            ret.add( ( ( Integer ) iter.next() ).intValue() );
+        }
+        return ret;
+    }
+
     public void add( int direction )
     {
         super.add( new Integer( direction ) );
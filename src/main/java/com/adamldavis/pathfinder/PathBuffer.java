@@ -0,0 +1,84 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable array of directions (0 = up, 1 = right, 2 = down,
+ * 3 = left) that finders can write a path into. Keeping one buffer per
+ * caller and reusing it means a query does not allocate a new array.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class PathBuffer
+{
+
+    private int[] dirs;
+
+    private int size;
+
+    public PathBuffer()
+    {
+        this( 64 );
+    }
+
+    public PathBuffer( int capacity )
+    {
+        dirs = new int[capacity];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int get( int i )
+    {
+        if ( i >= size ) throw new ArrayIndexOutOfBoundsException( i );
+        return dirs[i];
+    }
+
+    /**
+     * The backing array, only the first size() entries are part of the path.
+     */
+    public int[] array()
+    {
+        return dirs;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public void add( int dir )
+    {
+        if ( size == dirs.length ) ensureCapacity( size + 1 );
+        dirs[size++] = dir;
+    }
+
+    /**
+     * Sets the size, growing the array if needed, so that the entries can be
+     * filled in through array() in any order.
+     */
+    public void setSize( int n )
+    {
+        ensureCapacity( n );
+        size = n;
+    }
+
+    public void ensureCapacity( int n )
+    {
+        if ( n > dirs.length ) dirs = Arrays.copyOf( dirs, Math.max( n, dirs.length * 2 ) );
+    }
+
+    public int[] toArray()
+    {
+        return Arrays.copyOf( dirs, size );
+    }
+
+    public String toString()
+    {
+        return Arrays.toString( toArray() );
+    }
+}//PathBuffer
@@ -12,6 +12,12 @@ public abstract class PathFinder
 
     private static final boolean bDEBUG = false;
 
+    /** Change in x for each direction (0 = up, 1 = right, 2 = down, 3 = left). */
+    static final int[] DX = { 0, 1, 0, -1 };
+
+    /** Change in y for each direction (0 = up, 1 = right, 2 = down, 3 = left). */
+    static final int[] DY = { -1, 0, 1, 0 };
+
     /** Distance variable. */
     int distance = Integer.MAX_VALUE;
 
@@ -26,6 +32,19 @@ public abstract class PathFinder
      */
     PathGrid doneGrid;
 
+    /**
+     * Optional index used to reject goals that can't be reached without
+     * searching.
+     */
+    private volatile ConnectivityIndex connectivity;
+
+    private volatile SearchListener listener;
+
+    private volatile boolean statsEnabled;
+
+    /** Stats of the last call on each thread. */
+    private final ThreadLocal<SearchStats> stats = ThreadLocal.withInitial( SearchStats::new );
+
     public PathFinder()
     {
         this( 30000 );
@@ -45,6 +64,57 @@ public abstract class PathFinder
         return distance;
     }
 
+    public ConnectivityIndex getConnectivity()
+    {
+        return connectivity;
+    }
+
+    /**
+     * Sets an index of the connected regions of a grid. Queries on that grid
+     * whose goal is in another region return no path without searching.
+     */
+    public void setConnectivity( ConnectivityIndex connectivity )
+    {
+        this.connectivity = connectivity;
+    }
+
+    public boolean isStatsEnabled()
+    {
+        return statsEnabled;
+    }
+
+    /**
+     * Turns on counting the work of each call, read with getLastStats().
+     */
+    public void setStatsEnabled( boolean statsEnabled )
+    {
+        this.statsEnabled = statsEnabled;
+    }
+
+    public SearchListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Sets a listener told about each node expanded and each call finished,
+     * or null for none.
+     */
+    public void setListener( SearchListener listener )
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * The stats of the last call made on this thread while stats were
+     * enabled (or a listener or Flight Recorder was listening). The object is
+     * reused by the next call.
+     */
+    public SearchStats getLastStats()
+    {
+        return stats.get();
+    }
+
     /**
      * Should find a path in the given grid.
      * 
@@ -53,6 +123,45 @@ public abstract class PathFinder
      */
     public abstract int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 );
 
+    /**
+     * Finds a path like findPath(grid, x1, y1, x2, y2) but writes it into the
+     * given buffer, so that a caller reusing the buffer does not allocate.
+     * Returns false, with the buffer empty, if no path is found. <BR>
+     * This implementation copies the result of findPath(grid, x1, y1, x2, y2).
+     * Finders that are thread-safe override it.
+     */
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        int[] path = findPath( grid, x1, y1, x2, y2 );
+        out.clear();
+        if ( path == null ) return false;
+        out.setSize( path.length );
+        System.arraycopy( path, 0, out.array(), 0, path.length );
+        return true;
+    }
+
+    /**
+     * Finds a path but stops when one of the limits is reached, returning the
+     * best path found so far. <BR>
+     * This implementation only checks the limits before searching. The
+     * finders that can stop part way override it.
+     */
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        if ( limits.isReached( 0 ) ) return new PathResult( null, false, true );
+        return new PathResult( findPath( grid, x1, y1, x2, y2 ), false, false );
+    }
+
+    /**
+     * True if one instance can be used by many threads at once. Such finders
+     * keep no state between calls and take their working arrays from a pool
+     * kept per thread. The others store the grid and search state in fields.
+     */
+    public boolean isThreadSafe()
+    {
+        return false;
+    }
+
     /**
      * Initializes and checks for obvious problems.
      */
@@ -65,11 +174,105 @@ public abstract class PathFinder
 
         /* do initializing. */
         mygrid = grid;
-        doneGrid = new SimplePathGrid( mygrid.getWidth(), mygrid.getHeight() );
+        doneGrid = makeVisitedGrid( mygrid );
 
         if ( mygrid.getGrid( x1, y1 ) || mygrid.getGrid( x2, y2 ) ) problem = true;
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) problem = true;
 
         return problem;
     }
 
+    /**
+     * Makes an empty grid the size of the given one, for marking the cells a
+     * search has visited. It is sparse for a sparse or memory-mapped grid, so
+     * that a huge world does not need a dense copy.
+     */
+    static PathGrid makeVisitedGrid( PathGrid grid )
+    {
+        PathGrid g = grid instanceof ObservablePathGrid ? ( ( ObservablePathGrid ) grid ).getDelegate() : grid;
+        if ( g instanceof SparsePathGrid || g instanceof MappedPathGrid )
+            return new SparsePathGrid( grid.getWidth(), grid.getHeight() );
+        return new BitPathGrid( grid.getWidth(), grid.getHeight() );
+    }
+
+    /**
+     * Number of cells of the grid, for the searches that keep a flat array
+     * indexed by y * width + x.
+     *
+     * @throws IllegalArgumentException
+     *             If the grid has more cells than such an array can hold.
+     */
+    static int cellCount( PathGrid grid )
+    {
+        long n = ( long ) grid.getWidth() * grid.getHeight();
+        if ( n > Integer.MAX_VALUE )
+            throw new IllegalArgumentException( "grid of " + grid.getWidth() + " x " + grid.getHeight()
+                    + " cells is too large to search with flat arrays" );
+        return ( int ) n;
+    }
+
+    /**
+     * Starts counting a call, or returns null if nothing would read the
+     * counts. The finders check for null before each count.
+     */
+    protected final SearchStats beginSearch()
+    {
+        SearchListener l = listener;
+        boolean recording = SearchEvent.TYPE.isEnabled();
+        if ( !statsEnabled && l == null && !recording ) return null;
+        SearchEvent event = null;
+        if ( recording )
+        {
+            event = new SearchEvent();
+            event.begin();
+        }
+        SearchStats st = stats.get();
+        st.begin( l, event );
+        return st;
+    }
+
+    /**
+     * Finishes counting a call started with beginSearch, telling the listener
+     * and Flight Recorder.
+     *
+     * @param length
+     *            Length of the path found, or -1.
+     */
+    protected final void endSearch( SearchStats st, int x1, int y1, int x2, int y2, int length )
+    {
+        st.end( length );
+        if ( st.listener != null ) st.listener.finished( this, st );
+        SearchEvent event = st.event;
+        if ( event != null )
+        {
+            st.event = null;
+            event.end();
+            if ( event.shouldCommit() )
+            {
+                event.finder = getClass().getSimpleName();
+                event.x1 = x1;
+                event.y1 = y1;
+                event.x2 = x2;
+                event.y2 = y2;
+                event.expanded = st.expanded;
+                event.generated = st.generated;
+                event.peakFrontier = st.peakFrontier;
+                event.iterations = st.iterations;
+                event.retries = st.retries;
+                event.length = length;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * True if the connectivity index is for this grid and says the goal
+     * can't be reached from the start.
+     */
+    protected boolean isUnreachable( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        ConnectivityIndex index = connectivity;
+        return index != null && index.getGrid() == grid && !index.isReachable( x1, y1, x2, y2 );
+    }
+
 }//class
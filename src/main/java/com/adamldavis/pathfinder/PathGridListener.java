@@ -0,0 +1,19 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Told about changes to the cells of an ObservablePathGrid.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public interface PathGridListener
+{
+
+    /**
+     * Called after the cell at x, y changed.
+     * 
+     * @param blocked
+     *            True means it is now an obstacle.
+     */
+    public void cellChanged( PathGrid grid, int x, int y, boolean blocked );
+}
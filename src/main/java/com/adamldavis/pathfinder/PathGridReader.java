@@ -0,0 +1,164 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads grids written by PathGridWriter from a channel into BitPathGrids,
+ * through a small buffer. An IOException is thrown if the data is not a
+ * grid, is cut short or does not match its checksum.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class PathGridReader implements Closeable
+{
+
+    /** Most longs a grid read may take, about the largest array a JVM allows. */
+    static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buf = ByteBuffer.allocate( PathGridWriter.BUFFER ).order( ByteOrder.LITTLE_ENDIAN );
+
+    private final CRC32 crc = new CRC32();
+
+    /** Start of the bytes in buf not yet added to the checksum. */
+    private int crcFrom;
+
+    public PathGridReader( ReadableByteChannel channel )
+    {
+        this.channel = channel;
+        buf.flip();
+    }
+
+    /**
+     * Reads a grid from a file.
+     */
+    public static BitPathGrid load( Path file ) throws IOException
+    {
+        PathGridReader reader = new PathGridReader( FileChannel.open( file, StandardOpenOption.READ ) );
+        try
+        {
+            return reader.read();
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the next grid.
+     */
+    public BitPathGrid read() throws IOException
+    {
+        crc.reset();
+        crcFrom = buf.position();
+        need( PathGridWriter.HEADER );
+        if ( buf.getInt() != PathGridWriter.MAGIC ) throw new IOException( "not a grid file" );
+        int version = buf.get();
+        if ( version != PathGridWriter.VERSION ) throw new IOException( "unknown grid file version " + version );
+        buf.get();
+        buf.getShort();
+        int width = buf.getInt();
+        int height = buf.getInt();
+        int stride = ( width + 63 ) >>> 6;
+        // a BitPathGrid keeps its words in one array.
+        if ( width < 0 || height < 0 || ( long ) stride * height > MAX_WORDS )
+            throw new IOException( "bad size " + width + "x" + height );
+        long[] words = new long[stride * height];
+        for ( int y = 0; y < height; y++ )
+        {
+            need( 1 );
+            int type = buf.get();
+            int base = y * stride;
+            if ( type == PathGridWriter.ROW_WORDS )
+            {
+                for ( int n = 0; n < stride; n++ )
+                {
+                    need( 8 );
+                    words[base + n] = buf.getLong();
+                }
+            } else if ( type == PathGridWriter.ROW_RUNS )
+            {
+                boolean blocked = false;
+                for ( int x = 0; x < width; blocked = !blocked )
+                {
+                    int len = getVarint();
+                    if ( len < 0 || len > width - x ) throw new IOException( "bad run in row " + y );
+                    if ( blocked ) setRange( words, base, x, x + len );
+                    x += len;
+                }
+            } else
+            {
+                throw new IOException( "bad row type " + type + " in row " + y );
+            }
+        }
+        crc.update( buf.array(), crcFrom, buf.position() - crcFrom );
+        crcFrom = buf.position(); // the checksum itself is not counted.
+        need( 4 );
+        if ( buf.getInt() != ( int ) crc.getValue() ) throw new IOException( "grid file checksum does not match" );
+        return new BitPathGrid( width, height, words );
+    }
+
+    /** Closes the channel. */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /** Sets the cells from x1 up to x2 of the row starting at base. */
+    private static void setRange( long[] words, int base, int x1, int x2 )
+    {
+        if ( x1 == x2 ) return;
+        int first = x1 >>> 6;
+        int last = ( x2 - 1 ) >>> 6;
+        long lastMask = -1L >>> ( 63 - ( ( x2 - 1 ) & 63 ) );
+        if ( first == last )
+        {
+            words[base + first] |= ( -1L << x1 ) & lastMask;
+            return;
+        }
+        words[base + first] |= -1L << x1;
+        for ( int n = first + 1; n < last; n++ )
+            words[base + n] = -1L;
+        words[base + last] |= lastMask;
+    }
+
+    private int getVarint() throws IOException
+    {
+        int v = 0;
+        for ( int shift = 0; shift < 35; shift += 7 )
+        {
+            need( 1 );
+            int b = buf.get();
+            v |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 ) return v;
+        }
+        throw new IOException( "bad run length" );
+    }
+
+    /**
+     * Makes sure n bytes are in the buffer, reading more from the channel if
+     * needed.
+     */
+    private void need( int n ) throws IOException
+    {
+        if ( buf.remaining() >= n ) return;
+        crc.update( buf.array(), crcFrom, buf.position() - crcFrom );
+        buf.compact();
+        while ( buf.position() < n )
+            if ( channel.read( buf ) < 0 ) throw new EOFException( "grid file is cut short" );
+        buf.flip();
+        crcFrom = 0;
+    }
+
+}//PathGridReader
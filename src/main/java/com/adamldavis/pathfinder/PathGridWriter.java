@@ -0,0 +1,224 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes grids to a channel in a compact binary format, read back with
+ * PathGridReader. The format is, all little-endian:
+ * <UL>
+ * <LI>a header: the int MAGIC, a version byte, three zero bytes, and the
+ * width and height as ints;</LI>
+ * <LI>each row: a byte ROW_WORDS followed by the row packed into longs as in
+ * a BitPathGrid, or a byte ROW_RUNS followed by the lengths of the runs of
+ * free and blocked cells, starting with free, as unsigned varints; whichever
+ * is shorter;</LI>
+ * <LI>the CRC32 of everything before it, as an int.</LI>
+ * </UL>
+ * The grid is written as it is read, through a small buffer, so a grid of
+ * any size can be written.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class PathGridWriter implements Closeable
+{
+
+    /** "PGRF" */
+    public static final int MAGIC = 0x50475246;
+
+    public static final int VERSION = 1;
+
+    static final int HEADER = 16;
+
+    static final int ROW_WORDS = 0;
+
+    static final int ROW_RUNS = 1;
+
+    static final int BUFFER = 1 << 16;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buf = ByteBuffer.allocate( BUFFER ).order( ByteOrder.LITTLE_ENDIAN );
+
+    private final CRC32 crc = new CRC32();
+
+    private long[] row = new long[0];
+
+    private int[] runs = new int[0];
+
+    public PathGridWriter( WritableByteChannel channel )
+    {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the grid to a file, replacing it.
+     */
+    public static void save( PathGrid grid, Path file ) throws IOException
+    {
+        PathGridWriter writer = new PathGridWriter( FileChannel.open( file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) );
+        try
+        {
+            writer.write( grid );
+        } finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes one grid. Several grids can be written one after another.
+     */
+    public void write( PathGrid grid ) throws IOException
+    {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int stride = ( width + 63 ) >>> 6;
+        if ( row.length < stride ) row = new long[stride];
+        if ( runs.length < width + 1 ) runs = new int[width + 1];
+        crc.reset();
+        buf.putInt( MAGIC ).put( ( byte ) VERSION ).put( ( byte ) 0 ).putShort( ( short ) 0 );
+        buf.putInt( width ).putInt( height );
+        for ( int y = 0; y < height; y++ )
+        {
+            getRow( grid, y, stride );
+            int n = countRuns( width, stride );
+            int size = 0;
+            for ( int i = 0; i < n && size < stride * 8; i++ )
+                size += varintSize( runs[i] );
+            if ( size < stride * 8 )
+            {
+                ensure( 1 );
+                buf.put( ( byte ) ROW_RUNS );
+                for ( int i = 0; i < n; i++ )
+                    putVarint( runs[i] );
+            } else
+            {
+                ensure( 1 );
+                buf.put( ( byte ) ROW_WORDS );
+                for ( int i = 0; i < stride; i++ )
+                {
+                    ensure( 8 );
+                    buf.putLong( row[i] );
+                }
+            }
+        }
+        flush();
+        buf.putInt( ( int ) crc.getValue() );
+        buf.flip();
+        while ( buf.hasRemaining() )
+            channel.write( buf );
+        buf.clear();
+    }
+
+    /** Closes the channel. */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Writes the grid as text, one line per row, with # for an obstacle and -
+     * for a free cell, the same as toString() of the grids. It appends a
+     * line at a time to out, so a Writer does not need the whole text in
+     * memory.
+     */
+    public static void render( PathGrid grid, Appendable out ) throws IOException
+    {
+        int width = grid.getWidth();
+        StringBuilder line = new StringBuilder( width + 1 );
+        for ( int y = 0; y < grid.getHeight(); y++ )
+        {
+            line.setLength( 0 );
+            for ( int x = 0; x < width; x++ )
+                line.append( grid.getGrid( x, y ) ? '#' : '-' );
+            out.append( line.append( '\n' ) );
+        }
+    }
+
+    private void getRow( PathGrid grid, int y, int stride )
+    {
+        for ( int n = 0; n < stride; n++ )
+        {
+            if ( grid instanceof BitPathGrid )
+                row[n] = ( ( BitPathGrid ) grid ).getWord( y, n );
+            else if ( grid instanceof MappedPathGrid )
+                row[n] = ( ( MappedPathGrid ) grid ).getWord( y, n );
+            else
+            {
+                long word = 0;
+                int end = Math.min( 64, grid.getWidth() - ( n << 6 ) );
+                for ( int i = 0; i < end; i++ )
+                    if ( grid.getGrid( ( n << 6 ) + i, y ) ) word |= 1L << i;
+                row[n] = word;
+            }
+        }
+    }
+
+    /**
+     * Splits the row into runs of free and blocked cells, starting with free,
+     * a word at a time. Returns the number of runs.
+     */
+    private int countRuns( int width, int stride )
+    {
+        int n = 0;
+        int x = 0;
+        long flip = 0; // -1 while in a run of blocked cells.
+        while ( x < width )
+        {
+            int w = x >>> 6;
+            long word = ( row[w] ^ flip ) & ( -1L << x );
+            while ( word == 0 && ++w < stride )
+                word = row[w] ^ flip;
+            int end = word == 0 ? width : Math.min( width, ( w << 6 ) + Long.numberOfTrailingZeros( word ) );
+            runs[n++] = end - x;
+            x = end;
+            flip = ~flip;
+        }
+        return n;
+    }
+
+    private static int varintSize( int v )
+    {
+        int size = 1;
+        while ( ( v >>>= 7 ) != 0 )
+            size++;
+        return size;
+    }
+
+    private void putVarint( int v ) throws IOException
+    {
+        ensure( 5 );
+        while ( ( v & ~0x7F ) != 0 )
+        {
+            buf.put( ( byte ) ( ( v & 0x7F ) | 0x80 ) );
+            v >>>= 7;
+        }
+        buf.put( ( byte ) v );
+    }
+
+    private void ensure( int n ) throws IOException
+    {
+        if ( buf.remaining() < n ) flush();
+    }
+
+    /** Writes out the buffer, adding it to the checksum. */
+    private void flush() throws IOException
+    {
+        buf.flip();
+        crc.update( buf.array(), 0, buf.limit() );
+        while ( buf.hasRemaining() )
+            channel.write( buf );
+        buf.clear();
+    }
+
+}//PathGridWriter
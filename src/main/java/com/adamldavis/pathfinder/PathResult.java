@@ -0,0 +1,63 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * The answer to a query made with SearchLimits. If the search finished the
+ * path is complete, or null if there is none. If a limit stopped it the path
+ * is the best complete path found so far, or, for finders that only find one
+ * complete path (like A*), a partial path from the start toward the goal
+ * that ends at the node the search thought most promising.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class PathResult
+{
+
+    private final int[] path;
+
+    private final boolean partial;
+
+    private final boolean stopped;
+
+    public PathResult( int[] path, boolean partial, boolean stopped )
+    {
+        this.path = path;
+        this.partial = partial;
+        this.stopped = stopped;
+    }
+
+    /**
+     * The directions (0 = up, 1 = right, 2 = down, 3 = left), or null.
+     */
+    public int[] getPath()
+    {
+        return path;
+    }
+
+    /** True if the path does not reach the goal. */
+    public boolean isPartial()
+    {
+        return partial;
+    }
+
+    /** True if the path is there and reaches the goal. */
+    public boolean isComplete()
+    {
+        return path != null && !partial;
+    }
+
+    /**
+     * True if a limit stopped the search, so a complete path may not be the
+     * shortest and a null path does not mean there is none.
+     */
+    public boolean isStopped()
+    {
+        return stopped;
+    }
+
+    public String toString()
+    {
+        return ( path == null ? "no path" : ( partial ? "partial path of " : "path of " ) + path.length + " steps" )
+                + ( stopped ? ", stopped" : "" );
+    }
+}//PathResult
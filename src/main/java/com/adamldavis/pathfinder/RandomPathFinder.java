@@ -1,8 +1,18 @@
 /** Copyright 2012, Adam L. Davis. All rights reserved. */
 package com.adamldavis.pathfinder;
 
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Tries to break down the path randomly, then uses CrudePathFinder.
+ * <BR>
+ * With a parallelism above one the tries run on several threads, see
+ * setParallelism. Given a seed the same query always gives the same path,
+ * whatever the parallelism.
  * 
  * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
  * @version Version 1.0, May 27, 2001
@@ -11,7 +21,7 @@ package com.adamldavis.pathfinder;
 public class RandomPathFinder extends PathFinder
 {
 
-    private static final boolean bDEBUG = true;
+    private static final boolean bDEBUG = false;
 
     private static final int MAX_REPEAT = 100;
 
@@ -21,6 +31,13 @@ public class RandomPathFinder extends PathFinder
      */
     private CrudePathFinder cpf;
 
+    /** Threads the tries run on, 1 runs them on the caller. */
+    private int parallelism = 1;
+
+    private boolean seeded;
+
+    private long seed;
+
     public RandomPathFinder()
     {
         super();
@@ -44,6 +61,64 @@ public class RandomPathFinder extends PathFinder
      *            True means it is an obstacle.
      */
     public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        SearchStats st = beginSearch();
+        int[] path = search( grid, x1, y1, x2, y2, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, path == null ? -1 : path.length );
+        return path;
+    }
+
+    /**
+     * Keeps trying random paths until the limits are reached instead of
+     * stopping after MAX_REPEAT, and returns the shortest found by then. The
+     * limits are checked between tries, a budget counts tries.
+     */
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        SearchStats st = beginSearch();
+        int[] path = search( grid, x1, y1, x2, y2, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, path == null ? -1 : path.length );
+        return new PathResult( path, false, limits.isStopped() );
+    }
+
+    /**
+     * Runs the tries on the given number of threads: the caller and the rest
+     * from the common fork-join pool. Each try then has its own random
+     * numbers, split in order from one generator, and does not avoid the
+     * points earlier tries went through as the series does. A shared best
+     * length stops tries that can no longer beat it, and of tries giving
+     * paths of the same length the first wins, so with a seed the path does
+     * not depend on the number of threads. In parallel the tries use
+     * CrudePathFinder's compact mode. A seeded finder runs its tries this way
+     * even on one thread, so that it gives the same paths as in parallel.
+     */
+    public void setParallelism( int parallelism )
+    {
+        if ( parallelism < 1 ) throw new IllegalArgumentException( "parallelism < 1" );
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Makes the random points come from the given seed, so a query gives the
+     * same path each time.
+     */
+    public void setSeed( long seed )
+    {
+        this.seed = seed;
+        this.seeded = true;
+    }
+
+    private SplittableRandom newRandom()
+    {
+        return seeded ? new SplittableRandom( seed ) : new SplittableRandom();
+    }
+
+    private int[] search( PathGrid grid, int x1, int y1, int x2, int y2, SearchStats st, SearchLimits limits )
     {
         int[] ret = null;
         int[] temp;
@@ -60,24 +135,26 @@ public class RandomPathFinder extends PathFinder
 		} else if (x1 - 1 == x2 && y1 == y2) {
 			return new int[] {3}; //left
 		}
-		if (mygrid == null)
-			mygrid = grid;
-		if (doneGrid == null)
-			doneGrid = new SimplePathGrid( mygrid.getWidth(), mygrid.getHeight() );
+		mygrid = grid;
+		doneGrid = makeVisitedGrid( mygrid );
 
-        if (mygrid.getGrid( x1, y1 ) || mygrid.getGrid( x2, y2 )) {
+        if (mygrid.getGrid( x1, y1 ) || mygrid.getGrid( x2, y2 )
+				|| isUnreachable( grid, x1, y1, x2, y2 )) {
 			return null;
 		}
+		if ( parallelism > 1 || seeded ) return searchParallel( grid, x1, y1, x2, y2, st, limits );
 		int d = Integer.MAX_VALUE; // distance of shortest path found.
+        SplittableRandom random = newRandom();
 
-        for (n=0; n < MAX_REPEAT && n < findMax(x1, y1, x2, y2); n++)
+        for (n=0; ( limits == null ? n < MAX_REPEAT : !limits.isReached( n ) ) && n < findMax(x1, y1, x2, y2); n++)
         {
-            temp = makeRandomPath( grid, x1, y1, x2, y2 );
+            temp = makeRandomPath( grid, x1, y1, x2, y2, st, random );
             if ( temp != null && temp.length < d ) {
 				ret = temp;
 				d = temp.length;
 			}
         }
+        if ( st != null ) st.retries = n;
         if ( bDEBUG ) {
 			System.out.println( "RandomPF n= " + n );
 			System.out.println( "RandomPF ret= " + ret );
@@ -85,10 +162,106 @@ public class RandomPathFinder extends PathFinder
         return ret;
     }
 
+    /**
+     * Runs the tries on parallelism threads, or only on the caller's thread
+     * if it is 1. A try's key is its length in
+     * the high half and its number in the low half, so the smallest key is
+     * the shortest path of the first try to find that length.
+     */
+    private int[] searchParallel( final PathGrid grid, final int x1, final int y1, final int x2, final int y2,
+            final SearchStats st, final SearchLimits limits )
+    {
+        final int tries = limits == null ? Math.min( MAX_REPEAT, findMax( x1, y1, x2, y2 ) ) : findMax( x1, y1, x2, y2 );
+        final SplittableRandom[] randoms = new SplittableRandom[tries];
+        SplittableRandom root = newRandom();
+        for ( int i = 0; i < tries; i++ )
+            randoms[i] = root.split();
+        final int[][] found = new int[tries][];
+        final AtomicLong best = new AtomicLong( Long.MAX_VALUE );
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                CrudePathFinder crude = new CrudePathFinder( getDistance() );
+                crude.setCompact( true );
+                crude.setStatsEnabled( st != null );
+                for ( int i; ( i = next.getAndIncrement() ) < tries; )
+                {
+                    if ( limits != null )
+                    {
+                        synchronized ( limits )
+                        {
+                            if ( limits.isReached( i ) ) break;
+                        }
+                    }
+                    int[] path = makeTry( grid, x1, y1, x2, y2, i, randoms[i], crude, best, st );
+                    if ( path == null ) continue;
+                    found[i] = path;
+                    long key = ( long ) path.length << 32 | i;
+                    for ( long b; key < ( b = best.get() ) && !best.compareAndSet( b, key ); )
+                        ;
+                }
+            }
+        };
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[Math.min( parallelism, tries ) - 1];
+        for ( int t = 0; t < tasks.length; t++ )
+            tasks[t] = ForkJoinPool.commonPool().submit( worker );
+        worker.run();
+        for ( ForkJoinTask<?> task : tasks )
+            task.join();
+        if ( st != null ) st.retries = Math.min( next.get(), tries );
+        long key = best.get();
+        return key == Long.MAX_VALUE ? null : found[( int ) key];
+    }
+
+    /**
+     * One try of the parallel search: a path through a random point, or null
+     * if there is none or it can't beat the best key.
+     */
+    private int[] makeTry( PathGrid grid, int x1, int y1, int x2, int y2, int i, SplittableRandom random,
+            CrudePathFinder crude, AtomicLong best, SearchStats st )
+    {
+        int max = findMax( x1, y1, x2, y2 );
+        int x = x1;
+        int y = y1;
+        boolean ok = false;
+        for ( int n = 0; n < 2 * max + 1 && !ok; n++ )
+        {
+            x = randomPos( x1, x2, max, random );
+            y = randomPos( y1, y2, max, random );
+            ok = ( x != x1 || y != y1 ) && !grid.getGrid( x, y );
+        }
+        if ( !ok || !canWin( findLength( x1, y1, x, y ) + findLength( x, y, x2, y2 ), i, best ) ) return null;
+        int[] p1 = crude.findPath( grid, x1, y1, x, y );
+        addStats( st, crude );
+        if ( p1 == null || !canWin( p1.length + findLength( x, y, x2, y2 ), i, best ) ) return null;
+        int[] p2 = crude.findPath( grid, x, y, x2, y2 );
+        addStats( st, crude );
+        if ( p2 == null ) return null;
+        return pathCombine( p1, p2 );
+    }
+
+    /**
+     * True if try i with a path of at least the given length could still
+     * have the best key.
+     */
+    private static boolean canWin( int length, int i, AtomicLong best )
+    {
+        return ( ( long ) length << 32 | i ) < best.get();
+    }
+
+    /** The Manhattan distance, the shortest a path can be. */
+    private static int findLength( int x1, int y1, int x2, int y2 )
+    {
+        return Math.abs( x2 - x1 ) + Math.abs( y2 - y1 );
+    }
+
     /**
      * PRE: "mygrid" has been initialized.
      */
-    private int[] makeRandomPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    private int[] makeRandomPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchStats st,
+            SplittableRandom random )
     {
         int[] p1;
         int[] p2;
@@ -101,8 +274,8 @@ public class RandomPathFinder extends PathFinder
         for (n = 0; n < 2*max + 1; n++)
         {
 	    while (x == x1 && y == y1) {
-		x = randomPos( x1, x2, max );
-		y = randomPos( y1, y2, max );
+		x = randomPos( x1, x2, max, random );
+		y = randomPos( y1, y2, max, random );
 	    }
             if ( mygrid.getGrid(x, y) ) continue;
             if ( doneGrid.getGrid( x, y ) ) continue; //keeps us from
@@ -115,22 +288,41 @@ public class RandomPathFinder extends PathFinder
 	}
 	        cpf = new CrudePathFinder( super.getDistance() );
 
+        cpf.setStatsEnabled( st != null );
         p1 = cpf.findPath( grid, x1, y1, x, y );
+        addStats( st, cpf );
         if ( p1 == null ) return null;
         p2 = cpf.findPath( grid, x, y, x2, y2 );
+        addStats( st, cpf );
         if ( p2 == null ) return null;
 
         return pathCombine( p1, p2 );
     }
 
+    /**
+     * Adds the stats of the last search of crude to st.
+     */
+    private static void addStats( SearchStats st, CrudePathFinder crude )
+    {
+        if ( st == null ) return;
+        SearchStats c = crude.getLastStats();
+        synchronized ( st )
+        {
+            st.expanded += c.expanded;
+            st.generated += c.generated;
+            st.iterations += c.iterations;
+            st.peakFrontier = Math.max( st.peakFrontier, c.peakFrontier );
+        }
+    }
+
     /**
      * Makes a random position based on max, n1, and n2.
      */
-    private int randomPos( int n1, int n2, int max )
+    private static int randomPos( int n1, int n2, int max, SplittableRandom random )
     {
         //find the middle of n1 & n2 then use max.
         int mid = ( ( n1 + n2 ) / 2 );
-        int ran = ( int ) ( Math.random() * ( double ) ( max + 1 ) );
+        int ran = random.nextInt( max + 1 );
 
         return ( mid + ran - ( max / 2 ) );
     }
@@ -148,7 +340,10 @@ public class RandomPathFinder extends PathFinder
             return xdif;
     }
 
-    private int[] reversePath( int[] path )
+    /**
+     * The same path walked from its end back to its start.
+     */
+    static int[] reversePath( int[] path )
     {
         int[] rev = null;
         int leng = path.length;
@@ -160,7 +355,7 @@ public class RandomPathFinder extends PathFinder
         return rev;
     }
 
-    private int oppositeDir( int dir )
+    static int oppositeDir( int dir )
     {
         return ( ( dir + 2 ) % 4 );
     }
@@ -0,0 +1,216 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Which agent has claimed which cell at which time, for planning many agents
+ * that must not collide (see CooperativePlanner). Times are ticks; claims
+ * before the current time have expired and are ignored.
+ * <BR>
+ * It is an open addressing hash table of longs packing x, y and time (x and
+ * y up to 65535), with the agent of each in an int array. An expired claim
+ * keeps its slot until a new claim reuses it or the table is rebuilt, which
+ * drops all expired claims, so a table that moves forward in time stays the
+ * size of the claims in its window. It is not thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class ReservationTable
+{
+
+    /** Largest x or y that fits in a key. */
+    public static final int MAX_COORD = 0xFFFF;
+
+    /** A time after every other, so a claim at it never expires. */
+    public static final int FOREVER = Integer.MAX_VALUE;
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+
+    private int[] agents;
+
+    private int mask;
+
+    /** Slots in use, expired or not. */
+    private int used;
+
+    private int now;
+
+    public ReservationTable()
+    {
+        this( 1024 );
+    }
+
+    /**
+     * @param capacity
+     *            Claims expected at once.
+     */
+    public ReservationTable( int capacity )
+    {
+        int size = Integer.highestOneBit( Math.max( 16, capacity * 2 - 1 ) ) << 1;
+        keys = new long[size];
+        agents = new int[size];
+        mask = size - 1;
+        Arrays.fill( keys, EMPTY );
+    }
+
+    /** The current time, claims before it have expired. */
+    public int getTime()
+    {
+        return now;
+    }
+
+    public void setTime( int now )
+    {
+        this.now = now;
+    }
+
+    /**
+     * The agent that claimed the cell at time t, or -1 if none has.
+     */
+    public int getAgent( int x, int y, int t )
+    {
+        if ( t < now || !fits( x, y ) ) return -1;
+        int i = find( key( x, y, t ) );
+        return i < 0 ? -1 : agents[i];
+    }
+
+    /**
+     * True if the cell is not claimed at time t by an agent other than the
+     * given one.
+     */
+    public boolean isFree( int x, int y, int t, int agent )
+    {
+        int a = getAgent( x, y, t );
+        return a < 0 || a == agent;
+    }
+
+    /**
+     * Claims the cell at time t for the agent. Returns false if another agent
+     * has it, or t has passed.
+     */
+    public boolean reserve( int x, int y, int t, int agent )
+    {
+        if ( t < now ) return false;
+        if ( !fits( x, y ) ) throw new IllegalArgumentException( "cell " + x + "," + y + " too far out" );
+        long key = key( x, y, t );
+        int i = find( key );
+        if ( i >= 0 ) return agents[i] == agent;
+        if ( ( used + 1 ) * 4 > keys.length * 3 ) rebuild();
+        // the first slot that is empty or has expired.
+        for ( i = hash( key ); keys[i] != EMPTY && ( int ) keys[i] >= now; i = ( i + 1 ) & mask )
+            ;
+        if ( keys[i] == EMPTY ) used++;
+        keys[i] = key;
+        agents[i] = agent;
+        return true;
+    }
+
+    /**
+     * Gives back the agent's claim on the cell at time t. Returns false if it
+     * had none.
+     */
+    public boolean release( int x, int y, int t, int agent )
+    {
+        if ( !fits( x, y ) ) return false;
+        int i = find( key( x, y, t ) );
+        if ( i < 0 || agents[i] != agent ) return false;
+        remove( i );
+        return true;
+    }
+
+    /** Drops every claim. */
+    public void clear()
+    {
+        Arrays.fill( keys, EMPTY );
+        used = 0;
+    }
+
+    /** Claims that have not expired. */
+    public int size()
+    {
+        int n = 0;
+        for ( long k : keys )
+            if ( k != EMPTY && ( int ) k >= now ) n++;
+        return n;
+    }
+
+    private static boolean fits( int x, int y )
+    {
+        return x >= 0 && y >= 0 && x <= MAX_COORD && y <= MAX_COORD;
+    }
+
+    private static long key( int x, int y, int t )
+    {
+        return ( ( long ) x << 48 ) | ( ( long ) y << 32 ) | ( t & 0xFFFFFFFFL );
+    }
+
+    private int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ( int ) ( h ^ ( h >>> 32 ) ) & mask;
+    }
+
+    /** The slot of the key, or -1. */
+    private int find( long key )
+    {
+        for ( int i = hash( key );; i = ( i + 1 ) & mask )
+        {
+            if ( keys[i] == key ) return i;
+            if ( keys[i] == EMPTY ) return -1;
+        }
+    }
+
+    /**
+     * Empties slot i, moving back later keys of its run that would no longer
+     * be found.
+     */
+    private void remove( int i )
+    {
+        keys[i] = EMPTY;
+        used--;
+        for ( int j = ( i + 1 ) & mask; keys[j] != EMPTY; j = ( j + 1 ) & mask )
+        {
+            int home = hash( keys[j] );
+            // move j to i if its home is not in (i, j].
+            if ( ( ( j - home ) & mask ) >= ( ( j - i ) & mask ) )
+            {
+                keys[i] = keys[j];
+                agents[i] = agents[j];
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Drops the expired claims, growing the table if it is still over half
+     * full.
+     */
+    private void rebuild()
+    {
+        long[] oldKeys = keys;
+        int[] oldAgents = agents;
+        int live = size();
+        int size = live * 2 > oldKeys.length ? oldKeys.length * 2 : oldKeys.length;
+        keys = new long[size];
+        agents = new int[size];
+        mask = size - 1;
+        Arrays.fill( keys, EMPTY );
+        used = 0;
+        for ( int j = 0; j < oldKeys.length; j++ )
+        {
+            long k = oldKeys[j];
+            if ( k == EMPTY || ( int ) k < now ) continue;
+            int i = hash( k );
+            while ( keys[i] != EMPTY )
+                i = ( i + 1 ) & mask;
+            keys[i] = k;
+            agents[i] = oldAgents[j];
+            used++;
+        }
+    }
+
+}//ReservationTable
@@ -0,0 +1,58 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one findPath call. Finders only count their work
+ * while a recording has this event enabled.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+@Name( "com.adamldavis.pathfinder.Search" )
+@Label( "Path Search" )
+@Category( "PathFinder" )
+@Description( "One findPath call" )
+class SearchEvent extends jdk.jfr.Event
+{
+
+    static final EventType TYPE = EventType.getEventType( SearchEvent.class );
+
+    @Label( "Finder" )
+    String finder;
+
+    @Label( "Start X" )
+    int x1;
+
+    @Label( "Start Y" )
+    int y1;
+
+    @Label( "Goal X" )
+    int x2;
+
+    @Label( "Goal Y" )
+    int y2;
+
+    @Label( "Expanded" )
+    long expanded;
+
+    @Label( "Generated" )
+    long generated;
+
+    @Label( "Peak Frontier" )
+    int peakFrontier;
+
+    @Label( "Iterations" )
+    long iterations;
+
+    @Label( "Retries" )
+    int retries;
+
+    @Label( "Length" )
+    int length;
+
+}//SearchEvent
@@ -0,0 +1,112 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits for one query: a deadline, a budget of expanded nodes, or both, and
+ * a flag another thread can set to cancel the query. Pass it to
+ * PathFinder.findPath(grid, x1, y1, x2, y2, limits). When a limit is reached
+ * the finder stops and returns the best it has so far, see PathResult.
+ * <BR>
+ * The time starts when the limits are made, so make new limits for each
+ * query. The clock is only read every few expansions.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class SearchLimits
+{
+
+    /** Expansions between reads of the clock. */
+    private static final int CLOCK_EVERY = 64;
+
+    private final boolean timed;
+
+    private final long deadline;
+
+    private final long maxExpansions;
+
+    private volatile boolean cancelled;
+
+    private boolean stopped;
+
+    private int untilClock;
+
+    /**
+     * No limits, but the query can be cancelled.
+     */
+    public SearchLimits()
+    {
+        this( false, 0, Long.MAX_VALUE );
+    }
+
+    /**
+     * @param maxExpansions
+     *            Most nodes the finder may expand.
+     */
+    public SearchLimits( long maxExpansions )
+    {
+        this( false, 0, maxExpansions );
+    }
+
+    /**
+     * @param timeout
+     *            Time allowed from now.
+     */
+    public SearchLimits( long timeout, TimeUnit unit )
+    {
+        this( true, System.nanoTime() + unit.toNanos( timeout ), Long.MAX_VALUE );
+    }
+
+    public SearchLimits( long timeout, TimeUnit unit, long maxExpansions )
+    {
+        this( true, System.nanoTime() + unit.toNanos( timeout ), maxExpansions );
+    }
+
+    private SearchLimits( boolean timed, long deadline, long maxExpansions )
+    {
+        this.timed = timed;
+        this.deadline = deadline;
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Asks the finder to stop soon. Can be called from any thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /** True if the finder stopped because a limit was reached. */
+    public boolean isStopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * Called by a finder as it goes. True once it has to stop.
+     *
+     * @param expansions
+     *            Nodes expanded so far.
+     */
+    boolean isReached( long expansions )
+    {
+        if ( stopped ) return true;
+        if ( cancelled || expansions >= maxExpansions )
+        {
+            stopped = true;
+        } else if ( timed && --untilClock <= 0 )
+        {
+            untilClock = CLOCK_EVERY;
+            stopped = System.nanoTime() - deadline >= 0;
+        }
+        return stopped;
+    }
+
+}//SearchLimits
@@ -0,0 +1,20 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Told about the work of a PathFinder, see PathFinder.setListener. It is
+ * called on the searching thread, in the middle of the search, so it should
+ * be quick.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public interface SearchListener
+{
+
+    /** The finder is expanding the node at x, y. */
+    public void expanded( PathFinder finder, int x, int y );
+
+    /** A findPath call is done. The stats are reused by the next call. */
+    public void finished( PathFinder finder, SearchStats stats );
+
+}
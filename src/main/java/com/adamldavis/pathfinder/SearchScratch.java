@@ -0,0 +1,153 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Working arrays for one search, pooled one per thread so that a finder can
+ * be shared between threads and a query allocates nothing once the arrays are
+ * big enough. A cell's g-score and link are only valid if its stamp equals
+ * the current generation, so the arrays never need to be cleared between
+ * searches.
+ * 
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+final class SearchScratch
+{
+
+    /** Scratches kept per thread, enough for two searches at once. */
+    private static final int POOLED = 2;
+
+    private static final ThreadLocal<SearchScratch[]> LOCAL = new ThreadLocal<SearchScratch[]>()
+    {
+        protected SearchScratch[] initialValue()
+        {
+            return new SearchScratch[POOLED];
+        }
+    };
+
+    /** Generation in which each cell was last touched. */
+    int[] stamp = new int[0];
+
+    /** Cost to reach each cell. */
+    int[] g = new int[0];
+
+    /** Parent cell or direction of each cell, depending on the search. */
+    int[] link = new int[0];
+
+    /** Open list. */
+    IndexedHeap heap = new IndexedHeap( 0 );
+
+    /** Open list of the breadth-first searches, see queue(). */
+    private int[] queue = new int[0];
+
+    /** Current generation, never zero. */
+    int generation;
+
+    /** Used by JumpPointPathFinder. */
+    JumpPointPathFinder.Jumper jumper;
+
+    /** Used by DialPathFinder. */
+    DialPathFinder.Buckets buckets;
+
+    private boolean inUse;
+
+    /**
+     * Returns a scratch of this thread with room for n cells and a new
+     * generation. A thread keeps two, for searches that run two at once (or a
+     * search inside a search); past that a new one is returned. Call release()
+     * when done.
+     */
+    static SearchScratch acquire( int n )
+    {
+        SearchScratch[] pool = LOCAL.get();
+        SearchScratch s = null;
+        for ( int i = 0; i < POOLED && s == null; i++ )
+        {
+            if ( pool[i] == null ) pool[i] = new SearchScratch();
+            if ( !pool[i].inUse ) s = pool[i];
+        }
+        if ( s == null ) s = new SearchScratch();
+        s.inUse = true;
+        s.ensure( n );
+        s.next();
+        return s;
+    }
+
+    /**
+     * Makes this thread take its scratches from the given pool (see
+     * newPool()) and returns the pool it had. A thread that runs only one task,
+     * such as a virtual thread, would otherwise make new ones for every task.
+     */
+    static SearchScratch[] usePool( SearchScratch[] pool )
+    {
+        SearchScratch[] old = LOCAL.get();
+        LOCAL.set( pool );
+        return old;
+    }
+
+    /** An empty pool for usePool. */
+    static SearchScratch[] newPool()
+    {
+        return new SearchScratch[POOLED];
+    }
+
+    void release()
+    {
+        heap.clear();
+        inUse = false;
+    }
+
+    private void ensure( int n )
+    {
+        if ( stamp.length < n )
+        {
+            stamp = new int[n];
+            g = new int[n];
+            link = new int[n];
+            generation = 0;
+        }
+        if ( heap.capacity() < n ) heap = new IndexedHeap( n );
+        heap.clear();
+    }
+
+    /**
+     * The open list of a breadth-first search, with room for every cell. It
+     * is only made for the searches that ask for it.
+     */
+    int[] queue()
+    {
+        if ( queue.length < stamp.length ) queue = new int[stamp.length];
+        return queue;
+    }
+
+    private void next()
+    {
+        generation++;
+        if ( generation == 0 )
+        {
+            Arrays.fill( stamp, 0 );
+            generation = 1;
+        }
+    }
+
+    /** True if the cell has been touched by the current search. */
+    boolean isSet( int i )
+    {
+        return stamp[i] == generation;
+    }
+
+    /** The g-score of the cell, or Integer.MAX_VALUE if not touched yet. */
+    int getG( int i )
+    {
+        return stamp[i] == generation ? g[i] : Integer.MAX_VALUE;
+    }
+
+    void set( int i, int cost, int lnk )
+    {
+        stamp[i] = generation;
+        g[i] = cost;
+        link[i] = lnk;
+    }
+
+}//SearchScratch
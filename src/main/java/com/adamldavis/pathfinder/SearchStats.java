@@ -0,0 +1,114 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Counts what one findPath call did. Finders only count while stats are
+ * enabled, a listener is set or a Flight Recorder recording takes their
+ * events; otherwise the counting code is skipped by one null check. Not every
+ * finder fills in every number, and what a node is depends on the finder:
+ * a cell for A*, a jump point for JPS, an ant's step for AntPathFinder.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class SearchStats
+{
+
+    long expanded;
+
+    long generated;
+
+    int peakFrontier;
+
+    long iterations;
+
+    int retries;
+
+    long nanos;
+
+    int length;
+
+    SearchListener listener;
+
+    SearchEvent event;
+
+    /** Nodes taken from the frontier and expanded. */
+    public long getExpanded()
+    {
+        return expanded;
+    }
+
+    /** Nodes added to the frontier. */
+    public long getGenerated()
+    {
+        return generated;
+    }
+
+    /** Largest size of the frontier. */
+    public int getPeakFrontier()
+    {
+        return peakFrontier;
+    }
+
+    /** Turns of the finder's main loop, for the finders that count them. */
+    public long getIterations()
+    {
+        return iterations;
+    }
+
+    /** Attempts started over, for RandomPathFinder. */
+    public int getRetries()
+    {
+        return retries;
+    }
+
+    /** Wall time of the call in nanoseconds. */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /** Length of the path found, or -1 if none was. */
+    public int getLength()
+    {
+        return length;
+    }
+
+    void begin( SearchListener listener, SearchEvent event )
+    {
+        expanded = 0;
+        generated = 0;
+        peakFrontier = 0;
+        iterations = 0;
+        retries = 0;
+        length = -1;
+        this.listener = listener;
+        this.event = event;
+        nanos = System.nanoTime();
+    }
+
+    void end( int length )
+    {
+        nanos = System.nanoTime() - nanos;
+        this.length = length;
+    }
+
+    /** Counts an expansion and tells the listener. */
+    void expand( PathFinder finder, int x, int y )
+    {
+        expanded++;
+        if ( listener != null ) listener.expanded( finder, x, y );
+    }
+
+    /** Counts a node added to a frontier that now holds size nodes. */
+    void generate( int size )
+    {
+        generated++;
+        if ( size > peakFrontier ) peakFrontier = size;
+    }
+
+    public String toString()
+    {
+        return "expanded=" + expanded + " generated=" + generated + " peakFrontier=" + peakFrontier + " iterations="
+                + iterations + " retries=" + retries + " micros=" + nanos / 1000 + " length=" + length;
+    }
+}//SearchStats
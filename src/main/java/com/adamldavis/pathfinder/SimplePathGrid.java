@@ -65,6 +65,12 @@ public class SimplePathGrid implements PathGrid
         this.height = y;
     }
 
+    /** The backing array, indexed [x][y]. */
+    boolean[][] getArray()
+    {
+        return grid;
+    }
+
     public PathGrid copy()
     {
         PathGrid ret;
@@ -80,18 +86,13 @@ public class SimplePathGrid implements PathGrid
 
     public String toString()
     {
-        String str = "";
+        StringBuilder str = new StringBuilder( ( width + 1 ) * height );
         for ( int j = 0; j < grid[0].length; j++ )
         {
             for ( int i = 0; i < grid.length; i++ )
-            {
-                if ( grid[i][j] )
-                    str += "#";
-                else
-                    str += "-";
-            }
-            str += "\n";
+                str.append( grid[i][j] ? '#' : '-' );
+            str.append( '\n' );
         }
-        return str;
+        return str.toString();
     }
 }//PathGrid
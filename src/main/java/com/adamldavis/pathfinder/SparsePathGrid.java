@@ -0,0 +1,239 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A grid for huge worlds that are mostly empty. The cells are kept in 64 x 64
+ * tiles of one long per row, and only tiles that hold both free and blocked
+ * cells take memory: a tile with no obstacles is not stored and a tile that
+ * is all obstacles shares one array. The tiles are found in a hash table by
+ * their position.
+ * <BR>
+ * copy() shares the tiles with the copy, and a tile is only copied when one
+ * of the grids changes it. Reading from many threads is safe, changing the
+ * grid is not.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class SparsePathGrid implements PathGrid
+{
+
+    /** Width and height of a tile. */
+    public static final int TILE = 64;
+
+    private static final int SHIFT = 6;
+
+    /** Stands for a tile that is all obstacles, never written to. */
+    private static final long[] FULL = new long[TILE];
+
+    static
+    {
+        Arrays.fill( FULL, -1L );
+    }
+
+    private final int width;
+
+    private final int height;
+
+    /** Number of tiles across. */
+    private final long across;
+
+    /** Open addressing table of tile positions and tiles, null where empty. */
+    private long[] keys;
+
+    private long[][] tiles;
+
+    /** False where the tile may be shared with a copy. */
+    private boolean[] owned;
+
+    private int count;
+
+    public SparsePathGrid( int x, int y )
+    {
+        this.width = x;
+        this.height = y;
+        this.across = ( x + TILE - 1 ) >>> SHIFT;
+        clear();
+    }
+
+    private SparsePathGrid( SparsePathGrid grid )
+    {
+        this.width = grid.width;
+        this.height = grid.height;
+        this.across = grid.across;
+        this.keys = grid.keys.clone();
+        this.tiles = grid.tiles.clone();
+        this.owned = new boolean[tiles.length];
+        this.count = grid.count;
+    }
+
+    public boolean getGrid( int x, int y )
+    {
+        if ( x < 0 || y < 0 ) return true; //true means it is an obstacle.
+        if ( x >= width || y >= height ) return true;
+        long[] tile = tiles[slot( key( x, y ) )];
+        return tile != null && ( tile[y & ( TILE - 1 )] & ( 1L << x ) ) != 0;
+    }
+
+    public void setGrid( int x, int y, boolean yes )
+    {
+        if ( x < 0 || y < 0 || x >= width || y >= height )
+            throw new ArrayIndexOutOfBoundsException( x + "," + y );
+        int i = slot( key( x, y ) );
+        long[] tile = tiles[i];
+        int row = y & ( TILE - 1 );
+        long bit = 1L << x;
+        if ( ( tile != null && ( tile[row] & bit ) != 0 ) == yes ) return;
+        if ( tile == null )
+        {
+            tile = new long[TILE];
+            put( i, key( x, y ), tile );
+        } else if ( !owned[i] )
+        {
+            tile = tile.clone();
+            tiles[i] = tile;
+            owned[i] = true;
+        }
+        if ( yes )
+        {
+            tile[row] |= bit;
+            if ( tile[row] == -1L && isUniform( tile, -1L ) )
+            {
+                tiles[i] = FULL;
+                owned[i] = false;
+            }
+        } else
+        {
+            tile[row] &= ~bit;
+            if ( tile[row] == 0 && isUniform( tile, 0 ) ) remove( i );
+        }
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /** Number of tiles stored, the all-obstacle ones included. */
+    public int getTileCount()
+    {
+        return count;
+    }
+
+    /** Sets every cell to false. */
+    public void clear()
+    {
+        keys = new long[16];
+        tiles = new long[16][];
+        owned = new boolean[16];
+        count = 0;
+    }
+
+    /**
+     * Shares the tiles with the copy, each grid copies a shared tile the first
+     * time it changes it.
+     */
+    public PathGrid copy()
+    {
+        Arrays.fill( owned, false );
+        return new SparsePathGrid( this );
+    }
+
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( ( width + 1 ) * height );
+        for ( int j = 0; j < height; j++ )
+        {
+            for ( int i = 0; i < width; i++ )
+                str.append( getGrid( i, j ) ? '#' : '-' );
+            str.append( '\n' );
+        }
+        return str.toString();
+    }
+
+    private long key( int x, int y )
+    {
+        return ( y >>> SHIFT ) * across + ( x >>> SHIFT );
+    }
+
+    private static int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ( int ) ( h ^ ( h >>> 32 ) );
+    }
+
+    /** The slot of the tile, or the empty slot where it would go. */
+    private int slot( long key )
+    {
+        int mask = tiles.length - 1;
+        int i = hash( key ) & mask;
+        while ( tiles[i] != null && keys[i] != key )
+            i = ( i + 1 ) & mask;
+        return i;
+    }
+
+    private void put( int i, long key, long[] tile )
+    {
+        if ( ( count + 1 ) * 2 > tiles.length )
+        {
+            grow();
+            i = slot( key );
+        }
+        keys[i] = key;
+        tiles[i] = tile;
+        owned[i] = true;
+        count++;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        long[][] oldTiles = tiles;
+        boolean[] oldOwned = owned;
+        keys = new long[oldKeys.length * 2];
+        tiles = new long[oldTiles.length * 2][];
+        owned = new boolean[oldOwned.length * 2];
+        for ( int j = 0; j < oldTiles.length; j++ )
+        {
+            if ( oldTiles[j] == null ) continue;
+            int i = slot( oldKeys[j] );
+            keys[i] = oldKeys[j];
+            tiles[i] = oldTiles[j];
+            owned[i] = oldOwned[j];
+        }
+    }
+
+    private void remove( int i )
+    {
+        int mask = tiles.length - 1;
+        // shift back the tiles after it that would no longer be found.
+        for ( int j = ( i + 1 ) & mask; tiles[j] != null; j = ( j + 1 ) & mask )
+        {
+            int home = hash( keys[j] ) & mask;
+            if ( ( ( j - home ) & mask ) >= ( ( j - i ) & mask ) )
+            {
+                keys[i] = keys[j];
+                tiles[i] = tiles[j];
+                owned[i] = owned[j];
+                i = j;
+            }
+        }
+        tiles[i] = null;
+        owned[i] = false;
+        count--;
+    }
+
+    private static boolean isUniform( long[] tile, long word )
+    {
+        for ( int j = 0; j < TILE; j++ )
+            if ( tile[j] != word ) return false;
+        return true;
+    }
+
+}//SparsePathGrid
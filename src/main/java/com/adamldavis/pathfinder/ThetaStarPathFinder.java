@@ -0,0 +1,332 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * Any-angle search (Theta*) for agents that move freely rather than from
+ * cell to cell. findWaypoints returns a few cells, start and goal included,
+ * joined by straight lines that only cross free cells, instead of a step for
+ * every cell. It searches like A* over the eight neighbors of each cell, but
+ * a neighbor is given the parent of the cell being expanded, so the path
+ * bends only around obstacle corners. Whether the parent can see the cell is
+ * only checked when the cell is expanded (Lazy Theta*); if not, its parent
+ * becomes the best neighbor already expanded.
+ * <BR>
+ * A line can see from the center of one cell to the center of another if
+ * every cell it touches is free, including both cells beside a corner it
+ * passes through exactly. The lengths are Euclidean, so the paths are close
+ * to, but not always, the shortest any-angle paths. findPath expands the
+ * waypoints back into directions by walking along each line, so its paths
+ * are valid but can have more steps than a shortest 4-connected path.
+ * <BR>
+ * Like AStarPathFinder it is thread-safe.
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class ThetaStarPathFinder extends PathFinder
+{
+
+    /** Lengths are kept in 1/SCALE of a cell. */
+    private static final int SCALE = 1024;
+
+    public ThetaStarPathFinder()
+    {
+        super();
+    }
+
+    /**
+     * Initializes this pathfinder with a maximum possible distance for a path.
+     * @param maxDistance Maximum possible distance of a path in the grid.
+     */
+    public ThetaStarPathFinder( int maxDistance )
+    {
+        super( maxDistance );
+    }
+
+    /**
+     * Finds a path and returns it in the form of an array of directions. <BR>
+     * 0 = up, 1 = right, 2 = down, 3 = left.
+     *
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findPath( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        int[] waypoints = findWaypoints( grid, x1, y1, x2, y2 );
+        return waypoints == null ? null : toDirections( waypoints );
+    }
+
+    public boolean findPath( PathGrid grid, int x1, int y1, int x2, int y2, PathBuffer out )
+    {
+        out.clear();
+        int[] waypoints = findWaypoints( grid, x1, y1, x2, y2 );
+        if ( waypoints == null ) return false;
+        toDirections( waypoints, out );
+        return true;
+    }
+
+    /**
+     * Finds an any-angle path. Returns the x and y of each waypoint in turn,
+     * from the start to the goal, or null if there is no path.
+     *
+     * @param grid
+     *            True means it is an obstacle.
+     */
+    public int[] findWaypoints( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        SearchStats st = beginSearch();
+        int[] waypoints = search( grid, x1, y1, x2, y2, st, null );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, waypoints == null ? -1 : countSteps( waypoints ) );
+        return waypoints;
+    }
+
+    public PathResult findPath( PathGrid grid, int x1, int y1, int x2, int y2, SearchLimits limits )
+    {
+        SearchStats st = beginSearch();
+        int[] waypoints = search( grid, x1, y1, x2, y2, st, limits );
+        if ( st != null ) endSearch( st, x1, y1, x2, y2, waypoints == null ? -1 : countSteps( waypoints ) );
+        boolean stopped = limits.isStopped();
+        boolean found = waypoints != null;
+        return new PathResult( found ? toDirections( waypoints ) : null, found && stopped, stopped );
+    }
+
+    /**
+     * Returns the waypoints of the path, or null if there is none. If a limit
+     * is reached it returns those of the path to the expanded cell nearest the
+     * goal instead.
+     */
+    private int[] search( PathGrid grid, int x1, int y1, int x2, int y2, SearchStats st, SearchLimits limits )
+    {
+        if ( grid == null || grid.getWidth() == 0 ) return null;
+        if ( grid.getGrid( x1, y1 ) || grid.getGrid( x2, y2 ) ) return null;
+        if ( x1 == x2 && y1 == y2 ) return new int[] { x1, y1 };
+        if ( isUnreachable( grid, x1, y1, x2, y2 ) ) return null;
+
+        int w = grid.getWidth();
+        long max = ( long ) distance * SCALE;
+        // the links are the parent cells.
+        SearchScratch s = SearchScratch.acquire( cellCount( grid ) );
+        try
+        {
+            IndexedHeap open = s.heap;
+            int start = y1 * w + x1;
+            int goal = y2 * w + x2;
+            s.set( start, 0, start );
+            open.push( start, key( 0, length( x1, y1, x2, y2 ) ) );
+            int nearest = start;
+            int nearestH = Integer.MAX_VALUE;
+            long expanded = 0;
+            while ( !open.isEmpty() )
+            {
+                int cur = open.poll();
+                int x = cur % w;
+                int y = cur / w;
+                int parent = s.link[cur];
+                int px = parent % w;
+                int py = parent / w;
+                if ( !lineOfSight( grid, px, py, x, y ) )
+                {
+                    // take the best neighbor already expanded instead, there
+                    // is always the one that found cur.
+                    int best = Integer.MAX_VALUE;
+                    for ( int nx = x - 1; nx <= x + 1; nx++ )
+                    {
+                        for ( int ny = y - 1; ny <= y + 1; ny++ )
+                        {
+                            int n = ny * w + nx;
+                            if ( !isStep( grid, x, y, nx, ny ) || !s.isSet( n ) || open.contains( n ) ) continue;
+                            int g = s.g[n] + length( nx, ny, x, y );
+                            if ( g < best )
+                            {
+                                best = g;
+                                parent = n;
+                            }
+                        }
+                    }
+                    s.set( cur, best, parent );
+                }
+                if ( cur == goal ) return makeWaypoints( s, w, goal );
+                if ( limits != null )
+                {
+                    int h = length( x, y, x2, y2 );
+                    if ( h < nearestH )
+                    {
+                        nearestH = h;
+                        nearest = cur;
+                    }
+                    if ( limits.isReached( ++expanded ) ) return makeWaypoints( s, w, nearest );
+                }
+                if ( st != null ) st.expand( this, x, y );
+                // the neighbors are given the parent of cur, checked later.
+                parent = s.link[cur];
+                px = parent % w;
+                py = parent / w;
+                for ( int nx = x - 1; nx <= x + 1; nx++ )
+                {
+                    for ( int ny = y - 1; ny <= y + 1; ny++ )
+                    {
+                        if ( !isStep( grid, x, y, nx, ny ) ) continue;
+                        int next = ny * w + nx;
+                        if ( s.isSet( next ) && !open.contains( next ) ) continue; // expanded.
+                        int ng = s.g[parent] + length( px, py, nx, ny );
+                        if ( ng >= s.getG( next ) ) continue;
+                        int h = length( nx, ny, x2, y2 );
+                        if ( ng + h > max ) continue;
+                        s.set( next, ng, parent );
+                        open.push( next, key( ng, h ) );
+                        if ( st != null ) st.generate( open.size() );
+                    }
+                }
+            }
+            return null;
+        } finally
+        {
+            s.release();
+        }
+    }
+
+    /**
+     * True if x2, y2 is a free neighbor of x, y that can be stepped to
+     * without cutting the corner of an obstacle.
+     */
+    private static boolean isStep( PathGrid grid, int x, int y, int x2, int y2 )
+    {
+        if ( x2 == x && y2 == y || grid.getGrid( x2, y2 ) ) return false;
+        return x2 == x || y2 == y || !grid.getGrid( x2, y ) && !grid.getGrid( x, y2 );
+    }
+
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    /**
+     * True if a straight line from the center of cell x1, y1 to the center
+     * of x2, y2 only touches free cells. Where the line passes exactly
+     * through a corner both cells beside it must be free.
+     */
+    public static boolean lineOfSight( PathGrid grid, int x1, int y1, int x2, int y2 )
+    {
+        if ( grid.getGrid( x1, y1 ) ) return false;
+        int dx = Math.abs( x2 - x1 );
+        int dy = Math.abs( y2 - y1 );
+        int sx = x2 > x1 ? 1 : -1;
+        int sy = y2 > y1 ? 1 : -1;
+        int x = x1;
+        int y = y1;
+        for ( int ix = 0, iy = 0; ix < dx || iy < dy; )
+        {
+            // which cell border the line crosses next, see toDirections.
+            long side = ( 1 + 2L * ix ) * dy - ( 1 + 2L * iy ) * dx;
+            if ( side == 0 )
+            {
+                if ( grid.getGrid( x + sx, y ) || grid.getGrid( x, y + sy ) ) return false;
+                x += sx;
+                y += sy;
+                ix++;
+                iy++;
+            } else if ( side < 0 )
+            {
+                x += sx;
+                ix++;
+            } else
+            {
+                y += sy;
+                iy++;
+            }
+            if ( grid.getGrid( x, y ) ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Expands waypoints into an array of directions.
+     */
+    public static int[] toDirections( int[] waypoints )
+    {
+        PathBuffer out = new PathBuffer( countSteps( waypoints ) );
+        toDirections( waypoints, out );
+        return out.toArray();
+    }
+
+    /**
+     * Expands waypoints into directions, added to out. Each line becomes the
+     * cells it touches in order, so if the lines have line of sight the
+     * path only crosses free cells. Where a line passes exactly through a
+     * corner it goes across, then up or down.
+     */
+    public static void toDirections( int[] waypoints, PathBuffer out )
+    {
+        out.ensureCapacity( out.size() + countSteps( waypoints ) );
+        for ( int i = 2; i < waypoints.length; i += 2 )
+        {
+            int dx = Math.abs( waypoints[i] - waypoints[i - 2] );
+            int dy = Math.abs( waypoints[i + 1] - waypoints[i - 1] );
+            int xDir = waypoints[i] > waypoints[i - 2] ? 1 : 3;
+            int yDir = waypoints[i + 1] > waypoints[i - 1] ? 2 : 0;
+            for ( int ix = 0, iy = 0; ix < dx || iy < dy; )
+            {
+                // the line crosses the next vertical border at (0.5 + ix) / dx
+                // of the way, and the next horizontal one at (0.5 + iy) / dy.
+                long side = ( 1 + 2L * ix ) * dy - ( 1 + 2L * iy ) * dx;
+                if ( side <= 0 )
+                {
+                    out.add( xDir );
+                    ix++;
+                }
+                if ( side >= 0 )
+                {
+                    out.add( yDir );
+                    iy++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The number of steps in the directions of the waypoints, the sum of the
+     * Manhattan distances between them.
+     */
+    public static int countSteps( int[] waypoints )
+    {
+        int steps = 0;
+        for ( int i = 2; i < waypoints.length; i += 2 )
+            steps += Math.abs( waypoints[i] - waypoints[i - 2] ) + Math.abs( waypoints[i + 1] - waypoints[i - 1] );
+        return steps;
+    }
+
+    /**
+     * Orders by f = g + h, breaking ties toward the goal (smaller h).
+     */
+    private static long key( int g, int h )
+    {
+        return ( ( long ) ( g + h ) << 32 ) | h;
+    }
+
+    /** The Euclidean distance in 1/SCALE of a cell. */
+    private static int length( int x1, int y1, int x2, int y2 )
+    {
+        long dx = x2 - x1;
+        long dy = y2 - y1;
+        return ( int ) Math.round( Math.sqrt( dx * dx + dy * dy ) * SCALE );
+    }
+
+    /**
+     * Follows the parents back from the goal.
+     */
+    private static int[] makeWaypoints( SearchScratch s, int w, int goal )
+    {
+        int n = 1;
+        for ( int cur = goal; s.link[cur] != cur; cur = s.link[cur] )
+            n++;
+        int[] waypoints = new int[n * 2];
+        int cur = goal;
+        for ( int i = n - 1; i >= 0; i-- )
+        {
+            waypoints[i * 2] = cur % w;
+            waypoints[i * 2 + 1] = cur / w;
+            cur = s.link[cur];
+        }
+        return waypoints;
+    }
+
+}//ThetaStarPathFinder
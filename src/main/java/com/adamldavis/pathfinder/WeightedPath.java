@@ -0,0 +1,58 @@
+/** Copyright 2012, Adam L. Davis. All rights reserved. */
+package com.adamldavis.pathfinder;
+
+/**
+ * A path found on a CostGrid and its total cost, the sum of the costs of the
+ * cells it enters (not counting the start).
+ *
+ * @author <A HREF="http://www.adamldavis.com">Adam L. Davis</A>
+ */
+public class WeightedPath
+{
+
+    private final int[] path;
+
+    private final long cost;
+
+    public WeightedPath( int[] path, long cost )
+    {
+        this.path = path;
+        this.cost = cost;
+    }
+
+    /**
+     * The directions (0 = up, 1 = right, 2 = down, 3 = left).
+     */
+    public int[] getPath()
+    {
+        return path;
+    }
+
+    public long getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * The cost of following a path from x, y on the grid, or -1 if it enters
+     * an obstacle.
+     */
+    public static long getCost( CostGrid grid, int x, int y, int[] path )
+    {
+        long cost = 0;
+        for ( int dir : path )
+        {
+            x += PathFinder.DX[dir];
+            y += PathFinder.DY[dir];
+            int c = grid.getCost( x, y );
+            if ( c == 0 ) return -1;
+            cost += c;
+        }
+        return cost;
+    }
+
+    public String toString()
+    {
+        return "path of " + path.length + " steps costing " + cost;
+    }
+}//WeightedPath
@@ -0,0 +1,113 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.theories.DataPoint;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+@RunWith(Theories.class)
+public class AStarPathFinderTest {
+
+	AStarPathFinder finder;
+
+	@Before
+	public void setUp() throws Exception {
+		finder = new AStarPathFinder();
+	}
+
+	@DataPoint
+	public static final PathGrid grid = AntPathFinderTest.makeGrid(12, 12);
+	@DataPoint
+	public static final PathGrid grid32 = AntPathFinderTest.makeGrid(32, 32);
+	@DataPoint
+	public static final PathGrid grid64 = new BitPathGrid(AntPathFinderTest.makeGrid(55, 64));
+
+	@Theory
+	public void testFindPath(PathGrid grid) {
+		int x2 = grid.getWidth() - 1;
+		int y2 = grid.getHeight() - 1;
+		int[] path = finder.findPath(grid, 0, 0, x2, y2);
+		assertNotNull(path);
+		assertThat(path.length, is(x2 + y2));
+		PathChecker.assertValid(grid, 0, 0, x2, y2, path);
+	}
+
+	@Test
+	public void testShortest() {
+		PathChecker.assertShortest(finder, 300, 0.3);
+	}
+
+	@Test
+	public void testUnreachable() {
+		PathGrid grid = new SimplePathGrid(5, 5);
+		for (int y = 0; y < 5; y++)
+			grid.setGrid(2, y, true);
+		assertThat(finder.findPath(grid, 0, 0, 4, 4), is(nullValue()));
+		assertThat(finder.findPath(grid, 0, 0, 0, 0).length, is(0));
+	}
+
+	@Test
+	public void testBufferReuse() {
+		PathBuffer out = new PathBuffer(1);
+		PathGrid grid = new BitPathGrid(AntPathFinderTest.makeGrid(32, 32));
+		assertThat(finder.findPath(grid, 0, 0, 31, 31, out), is(true));
+		assertThat(out.toArray(), is(finder.findPath(grid, 0, 0, 31, 31)));
+		int[] array = out.array();
+		assertThat(finder.findPath(grid, 31, 31, 0, 0, out), is(true));
+		assertThat(out.size(), is(62));
+		assertThat(out.array() == array, is(true));
+		assertThat(finder.findPath(grid, 0, 0, 5, 5, out), is(false));
+		assertThat(out.size(), is(0));
+	}
+
+	@Test
+	public void testSharedBetweenThreads() throws Exception {
+		final PathGrid grid = new BitPathGrid(BitPathGridTest.randomGrid(120, 90, 0.25));
+		final int[][] queries = new int[200][];
+		java.util.Random random = new java.util.Random(7);
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = new int[] { random.nextInt(120), random.nextInt(90), random.nextInt(120),
+					random.nextInt(90) };
+		final List<int[]> expected = new ArrayList<int[]>();
+		for (int[] q : queries)
+			expected.add(finder.findPath(grid, q[0], q[1], q[2], q[3]));
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				results.add(pool.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						PathBuffer out = new PathBuffer();
+						for (int i = 0; i < queries.length; i++) {
+							int[] q = queries[i];
+							boolean found = finder.findPath(grid, q[0], q[1], q[2], q[3], out);
+							int[] path = found ? out.toArray() : null;
+							if (!java.util.Arrays.equals(path, expected.get(i)))
+								return false;
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results)
+				assertThat(result.get(), is(true));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
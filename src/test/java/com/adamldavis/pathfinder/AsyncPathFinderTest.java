@@ -0,0 +1,112 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AsyncPathFinderTest {
+
+	@Test
+	public void testSameAsBlocking() throws Exception {
+		PathGrid grid = BitPathGridTest.randomGrid(100, 100, 0.25);
+		AStarPathFinder finder = new AStarPathFinder();
+		AsyncPathFinder async = new AsyncPathFinder(finder);
+		Random random = new Random(19);
+		List<int[]> queries = new ArrayList<int[]>();
+		List<CompletableFuture<int[]>> futures = new ArrayList<CompletableFuture<int[]>>();
+		for (int i = 0; i < 500; i++) {
+			int[] q = { random.nextInt(100), random.nextInt(100), random.nextInt(100), random.nextInt(100) };
+			queries.add(q);
+			futures.add(async.findPath(grid, q[0], q[1], q[2], q[3]));
+		}
+		for (int i = 0; i < queries.size(); i++) {
+			int[] q = queries.get(i);
+			assertArrayEquals(finder.findPath(grid, q[0], q[1], q[2], q[3]), futures.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertThat(async.getQueued(), is(0));
+	}
+
+	@Test
+	public void testCancelStopsSearch() throws Exception {
+		PathGrid grid = new BitPathGrid(3000, 3000);
+		grid.setGrid(2998, 2999, true);
+		grid.setGrid(2999, 2998, true);
+		final CountDownLatch started = new CountDownLatch(1);
+		AStarPathFinder finder = new AStarPathFinder();
+		finder.setListener(new SearchListener() {
+			public void expanded(PathFinder finder, int x, int y) {
+				started.countDown();
+			}
+
+			public void finished(PathFinder finder, SearchStats stats) {
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AsyncPathFinder async = new AsyncPathFinder(finder, executor, 1);
+			CompletableFuture<int[]> slow = async.findPath(grid, 0, 0, 2999, 2999);
+			CompletableFuture<int[]> queued = async.findPath(grid, 0, 0, 2999, 2999);
+			CompletableFuture<int[]> quick = async.findPath(grid, 0, 0, 5, 5);
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			assertThat(async.getQueued(), is(2));
+			queued.cancel(true);
+			assertThat(async.getQueued(), is(1));
+			slow.cancel(true);
+			assertThat(quick.get(1, TimeUnit.SECONDS).length, is(10));
+			assertTrue(slow.isCancelled());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testScratchOutlivesThread() throws Exception {
+		// a thread per query, as with virtual threads.
+		Executor perQuery = new Executor() {
+			public void execute(Runnable r) {
+				new Thread(r).start();
+			}
+		};
+		AsyncPathFinder async = new AsyncPathFinder(new AStarPathFinder(), perQuery, 1);
+		PathGrid grid = new BitPathGrid(100, 100);
+		async.findPath(grid, 0, 0, 99, 99).get(5, TimeUnit.SECONDS);
+		while (async.scratches.isEmpty())
+			Thread.sleep(1); // the pool is given back after the future completes.
+		SearchScratch scratch = async.scratches.peek()[0];
+		assertTrue(scratch.stamp.length >= 100 * 100);
+		async.findPath(grid, 99, 0, 0, 99).get(5, TimeUnit.SECONDS);
+		while (async.scratches.isEmpty())
+			Thread.sleep(1);
+		assertThat(async.scratches.size(), is(1));
+		assertTrue(async.scratches.peek()[0] == scratch);
+	}
+
+	@Test
+	public void testLimits() throws Exception {
+		PathGrid grid = AntPathFinderTest.makeGrid(130, 64);
+		AsyncPathFinder async = new AsyncPathFinder(new BidirectionalPathFinder());
+		PathResult result = async.findPath(grid, 0, 0, 129, 63, new SearchLimits(10)).get(5, TimeUnit.SECONDS);
+		assertTrue(result.isPartial());
+		result = async.findPath(grid, 0, 0, 129, 63, new SearchLimits()).get(5, TimeUnit.SECONDS);
+		assertTrue(result.isComplete());
+	}
+
+	@Test
+	public void testNotThreadSafeRunsAlone() {
+		assertThat(new AsyncPathFinder(new CrudePathFinder()).getMaxRunning(), is(1));
+	}
+
+}
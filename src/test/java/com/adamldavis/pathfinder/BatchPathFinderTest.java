@@ -0,0 +1,50 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BatchPathFinderTest {
+
+	static final PathGrid grid = new BitPathGrid(BitPathGridTest.randomGrid(100, 80, 0.3));
+
+	static int[] queries(int n) {
+		Random random = new Random(3);
+		int[] queries = new int[n * 4];
+		for (int i = 0; i < queries.length; i += 4) {
+			queries[i] = random.nextInt(100);
+			queries[i + 1] = random.nextInt(80);
+			queries[i + 2] = random.nextInt(100);
+			queries[i + 3] = random.nextInt(80);
+		}
+		return queries;
+	}
+
+	@Test
+	public void testSameAsOneAtATime() {
+		assertSameAsOneAtATime(new AStarPathFinder(), 1000);
+		assertSameAsOneAtATime(new JumpPointPathFinder(), 77);
+		assertSameAsOneAtATime(new AntPathFinder(), 40);
+		assertSameAsOneAtATime(new AStarPathFinder(), 0);
+	}
+
+	void assertSameAsOneAtATime(PathFinder finder, int n) {
+		int[] queries = queries(n);
+		BatchPathFinder batch = new BatchPathFinder(finder);
+		int[][] paths = batch.findPaths(grid, queries);
+		PackedPaths packed = batch.findPathsPacked(grid, queries);
+		assertThat(paths.length, is(n));
+		assertThat(packed.size(), is(n));
+		for (int i = 0; i < n; i++) {
+			int[] expected = finder.findPath(grid, queries[4 * i], queries[4 * i + 1], queries[4 * i + 2],
+					queries[4 * i + 3]);
+			assertThat(paths[i], is(expected));
+			assertThat(packed.getPath(i), is(expected));
+			assertThat(packed.isFound(i), is(expected != null));
+		}
+		assertThat(packed.getOffset(n), is(packed.getDirections().length));
+	}
+}
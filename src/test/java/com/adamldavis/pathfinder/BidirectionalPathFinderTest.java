@@ -0,0 +1,38 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BidirectionalPathFinderTest {
+
+	BidirectionalPathFinder finder = new BidirectionalPathFinder();
+
+	@Test
+	public void testShortest() {
+		PathChecker.assertShortest(finder, 300, 0.1);
+		PathChecker.assertShortest(finder, 300, 0.3);
+		PathChecker.assertShortest(finder, 300, 0.45);
+		PathChecker.assertShortest(finder, 300, 0.3, true);
+	}
+
+	@Test
+	public void testShortPaths() {
+		PathGrid grid = new BitPathGrid(5, 5);
+		assertThat(finder.findPath(grid, 2, 2, 2, 2).length, is(0));
+		assertThat(finder.findPath(grid, 2, 2, 3, 2), is(new int[] { 1 }));
+		assertThat(finder.findPath(grid, 2, 2, 2, 0), is(new int[] { 0, 0 }));
+	}
+
+	@Test
+	public void testMaze() {
+		PathGrid grid = new BitPathGrid(AntPathFinderTest.makeGrid(130, 64));
+		PathBuffer out = new PathBuffer();
+		assertTrue(finder.findPath(grid, 0, 0, 129, 63, out));
+		assertThat(out.size(), is(PathChecker.shortest(grid, 0, 0, 129, 63)));
+		PathChecker.assertValid(grid, 0, 0, 129, 63, out.toArray());
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BitPathGridTest {
+
+	@Test
+	public void testRoundTrip() {
+		SimplePathGrid simple = randomGrid(131, 17, 0.3);
+		BitPathGrid bits = new BitPathGrid(simple);
+		assertSame(simple, bits);
+		assertSame(simple, bits.toSimplePathGrid());
+		assertThat(bits.toString(), is(simple.toString()));
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		BitPathGrid bits = new BitPathGrid(randomGrid(70, 9, 0.5));
+		PathGrid copy = bits.copy();
+		assertSame(bits, copy);
+		copy.setGrid(69, 8, !copy.getGrid(69, 8));
+		assertThat(bits.getGrid(69, 8), is(!copy.getGrid(69, 8)));
+	}
+
+	@Test
+	public void testFillAndClear() {
+		BitPathGrid bits = new BitPathGrid(65, 3);
+		bits.fill(true);
+		for (int x = 0; x < 65; x++)
+			for (int y = 0; y < 3; y++)
+				assertThat(bits.getGrid(x, y), is(true));
+		assertThat(bits.getWord(0, 1), is(1L)); // no bits past the width
+		bits.clear();
+		for (int x = 0; x < 65; x++)
+			for (int y = 0; y < 3; y++)
+				assertThat(bits.getGrid(x, y), is(false));
+	}
+
+	@Test
+	public void testOutsideIsObstacle() {
+		BitPathGrid bits = new BitPathGrid(64, 2);
+		assertThat(bits.getGrid(-1, 0), is(true));
+		assertThat(bits.getGrid(64, 0), is(true));
+		assertThat(bits.getGrid(0, 2), is(true));
+	}
+
+	static SimplePathGrid randomGrid(int w, int h, double density) {
+		Random random = new Random(w * 31 + h);
+		boolean[][] bb = new boolean[w][h];
+		for (int x = 0; x < w; x++)
+			for (int y = 0; y < h; y++)
+				bb[x][y] = random.nextDouble() < density;
+		return new SimplePathGrid(bb);
+	}
+
+	static void assertSame(PathGrid expected, PathGrid actual) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+		for (int x = 0; x < expected.getWidth(); x++)
+			for (int y = 0; y < expected.getHeight(); y++)
+				assertThat(actual.getGrid(x, y), is(expected.getGrid(x, y)));
+	}
+}
@@ -0,0 +1,84 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CachingPathFinderTest {
+
+	@Test
+	public void testHitsAndReverse() {
+		PathGrid grid = BitPathGridTest.randomGrid(40, 40, 0.2);
+		grid.setGrid(1, 1, false);
+		grid.setGrid(38, 38, false);
+		CachingPathFinder finder = new CachingPathFinder(new AStarPathFinder());
+		int[] path = finder.findPath(grid, 1, 1, 38, 38);
+		int[] again = finder.findPath(grid, 1, 1, 38, 38);
+		int[] back = finder.findPath(grid, 38, 38, 1, 1);
+		assertThat(finder.getMisses(), is(1L));
+		assertThat(finder.getHits(), is(2L));
+		assertThat(finder.getReverseHits(), is(1L));
+		if (path == null) {
+			assertThat(again, is(nullValue()));
+			assertThat(back, is(nullValue()));
+		} else {
+			assertThat(again, is(path));
+			PathChecker.assertValid(grid, 38, 38, 1, 1, back);
+			assertThat(back.length, is(path.length));
+		}
+	}
+
+	@Test
+	public void testHitsFarOut() {
+		// x over 0x7FFF sets the sign bit of the key.
+		ObservablePathGrid grid = new ObservablePathGrid(new BitPathGrid(50000, 2));
+		CachingPathFinder finder = new CachingPathFinder(new AStarPathFinder());
+		assertThat(finder.findPath(grid, 40000, 0, 40010, 1).length, is(11));
+		assertThat(finder.findPath(grid, 40000, 0, 40010, 1).length, is(11));
+		assertThat(finder.findPath(grid, 40010, 1, 40000, 0).length, is(11));
+		assertThat(finder.getMisses(), is(1L));
+		assertThat(finder.getHits(), is(2L));
+	}
+
+	@Test
+	public void testChangedGridIsNotStale() {
+		ObservablePathGrid observable = new ObservablePathGrid(new BitPathGrid(20, 20));
+		PathGrid plain = new SimplePathGrid(20, 20);
+		for (PathGrid grid : new PathGrid[] { observable, plain }) {
+			CachingPathFinder finder = new CachingPathFinder(new AStarPathFinder());
+			assertThat(finder.findPath(grid, 0, 0, 19, 0).length, is(19));
+			for (int y = 0; y < 19; y++)
+				grid.setGrid(10, y, true);
+			assertThat(finder.findPath(grid, 0, 0, 19, 0).length, is(19 + 2 * 19));
+			grid.setGrid(10, 19, true);
+			assertThat(finder.findPath(grid, 0, 0, 19, 0), is(nullValue()));
+			assertThat(finder.getHits(), is(0L));
+		}
+	}
+
+	@Test
+	public void testEviction() {
+		PathGrid grid = new BitPathGrid(30, 30);
+		CachingPathFinder finder = new CachingPathFinder(new JumpPointPathFinder(), 8, 100);
+		Random random = new Random(5);
+		PathBuffer out = new PathBuffer();
+		for (int i = 0; i < 2000; i++) {
+			int x1 = random.nextInt(30), y1 = random.nextInt(30);
+			int x2 = random.nextInt(4), y2 = random.nextInt(4);
+			assertTrue(finder.findPath(grid, x1, y1, x2, y2, out));
+			assertThat(out.size(), is(Math.abs(x2 - x1) + Math.abs(y2 - y1)));
+			assertTrue(finder.size() <= 8);
+		}
+		// the most recent query is always kept.
+		long hits = finder.getHits();
+		finder.findPath(grid, 5, 5, 0, 0, out);
+		finder.findPath(grid, 5, 5, 0, 0, out);
+		assertThat(finder.getHits(), is(hits + 1));
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompactPathTest {
+
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(1);
+		int[] dirs = new int[1000];
+		for (int i = 0; i < dirs.length; i++)
+			dirs[i] = random.nextInt(4);
+		CompactPath path = CompactPath.of(dirs);
+		assertThat(path.size(), is(1000));
+		assertThat(path.toArray(), is(dirs));
+
+		CompactPath.Cursor cursor = path.cursor();
+		for (int i = 0; i < dirs.length; i++)
+			assertThat(cursor.next(), is(dirs[i]));
+		assertThat(cursor.hasNext(), is(false));
+
+		path.removeLast();
+		path.add(3 - dirs[999]);
+		assertThat(path.get(999), is(3 - dirs[999]));
+	}
+
+	@Test
+	public void testWaypoints() {
+		CompactPath path = CompactPath.of(new int[] { 1, 1, 1, 2, 2, 1 });
+		assertThat(path.getWaypoints(0, 0), is(new int[] { 0, 0, 3, 0, 3, 2, 4, 2 }));
+		assertThat(new CompactPath().getWaypoints(5, 6), is(new int[] { 5, 6 }));
+		assertThat(path.reverse().toArray(), is(new int[] { 3, 0, 0, 3, 3, 3 }));
+	}
+
+	@Test
+	public void testForEach() {
+		final int[] end = new int[3];
+		CompactPath.of(new int[] { 2, 2, 3 }).forEach(5, 5, new CompactPath.StepVisitor() {
+			public void step(int i, int dir, int x, int y) {
+				end[0] = i;
+				end[1] = x;
+				end[2] = y;
+			}
+		});
+		assertThat(end, is(new int[] { 2, 4, 7 }));
+	}
+}
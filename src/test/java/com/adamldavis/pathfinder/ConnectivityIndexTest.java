@@ -0,0 +1,63 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ConnectivityIndexTest {
+
+	@Test
+	public void testMatchesSearch() {
+		Random random = new Random(11);
+		for (int n = 0; n < 30; n++) {
+			int w = 1 + random.nextInt(40);
+			int h = 1 + random.nextInt(40);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, 0.1 + random.nextDouble() * 0.4);
+			ConnectivityIndex index = new ConnectivityIndex(grid);
+			for (int i = 0; i < 50; i++) {
+				int x1 = random.nextInt(w), y1 = random.nextInt(h);
+				int x2 = random.nextInt(w), y2 = random.nextInt(h);
+				assertThat(index.isReachable(x1, y1, x2, y2), is(PathChecker.shortest(grid, x1, y1, x2, y2) >= 0));
+			}
+		}
+	}
+
+	@Test
+	public void testFollowsChanges() {
+		Random random = new Random(12);
+		for (int n = 0; n < 20; n++) {
+			int w = 5 + random.nextInt(30);
+			int h = 5 + random.nextInt(30);
+			ObservablePathGrid grid = new ObservablePathGrid(BitPathGridTest.randomGrid(w, h, 0.3));
+			ConnectivityIndex index = new ConnectivityIndex(grid);
+			for (int round = 0; round < 200; round++) {
+				grid.setGrid(random.nextInt(w), random.nextInt(h), random.nextDouble() < 0.4);
+				ConnectivityIndex fresh = new ConnectivityIndex(grid.getDelegate());
+				for (int i = 0; i < 10; i++) {
+					int x1 = random.nextInt(w), y1 = random.nextInt(h);
+					int x2 = random.nextInt(w), y2 = random.nextInt(h);
+					assertThat(index.isReachable(x1, y1, x2, y2), is(fresh.isReachable(x1, y1, x2, y2)));
+				}
+			}
+			index.dispose();
+		}
+	}
+
+	@Test
+	public void testFinderRejectsSealedGoal() {
+		PathGrid grid = new BitPathGrid(50, 50);
+		for (int i = 0; i < 50; i++)
+			grid.setGrid(25, i, true);
+		for (PathFinder finder : new PathFinder[] { new AStarPathFinder(), new JumpPointPathFinder(),
+				new HierarchicalPathFinder(), new CrudePathFinder() }) {
+			finder.setConnectivity(new ConnectivityIndex(grid));
+			assertThat(finder.findPath(grid, 0, 0, 49, 49), is(nullValue()));
+			assertThat(finder.findPath(grid, 0, 0, 3, 3).length, is(6));
+		}
+	}
+
+}
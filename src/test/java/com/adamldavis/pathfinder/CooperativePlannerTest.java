@@ -0,0 +1,190 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CooperativePlannerTest {
+
+	@Test
+	public void testReservationTable() {
+		ReservationTable table = new ReservationTable(4);
+		assertTrue(table.reserve(1, 2, 3, 7));
+		assertTrue(table.reserve(1, 2, 3, 7));
+		assertFalse(table.reserve(1, 2, 3, 8));
+		assertThat(table.getAgent(1, 2, 3), is(7));
+		assertThat(table.getAgent(1, 2, 4), is(-1));
+		assertFalse(table.release(1, 2, 3, 8));
+		assertTrue(table.release(1, 2, 3, 7));
+		assertThat(table.getAgent(1, 2, 3), is(-1));
+
+		// claims in the past expire and their slots are reused.
+		for (int t = 0; t < 10000; t++) {
+			table.setTime(t);
+			for (int i = 0; i < 8; i++)
+				assertTrue(table.reserve(i, t % 50, t + 2, i));
+			for (int i = 0; i < 8; i++)
+				assertThat(table.getAgent(i, (t - 1) % 50, t + 1), is(t > 0 ? i : -1));
+		}
+		assertThat(table.size(), is(24));
+		assertThat(table.getAgent(0, 0, 9000), is(-1));
+		assertFalse(table.reserve(0, 0, 9000, 1));
+	}
+
+	@Test
+	public void testReleaseKeepsOthers() {
+		ReservationTable table = new ReservationTable(64);
+		Random random = new Random(25);
+		int[] agent = new int[64 * 64];
+		Arrays.fill(agent, -1);
+		for (int n = 0; n < 20000; n++) {
+			int cell = random.nextInt(agent.length);
+			int x = cell % 64, y = cell / 64;
+			if (agent[cell] < 0) {
+				assertTrue(table.reserve(x, y, 5, n));
+				agent[cell] = n;
+			} else {
+				assertTrue(table.release(x, y, 5, agent[cell]));
+				agent[cell] = -1;
+			}
+			int other = random.nextInt(agent.length);
+			assertThat(table.getAgent(other % 64, other / 64, 5), is(agent[other]));
+		}
+	}
+
+	@Test
+	public void testSwapAround() {
+		// two agents in a corridor with one side pocket pass each other.
+		SimplePathGrid grid = new SimplePathGrid(12, 2);
+		for (int x = 0; x < 12; x++)
+			if (x != 6)
+				grid.setGrid(x, 1, true);
+		// a window short enough that the first agent's claims leave the other's cell.
+		CooperativePlanner planner = new CooperativePlanner(grid, 8, 1024);
+		int a = planner.addAgent(0, 0, 11, 0);
+		int b = planner.addAgent(11, 0, 0, 0);
+		for (int t = 0; t < 40 && !(planner.isFinished(a) && planner.isFinished(b)); t++)
+			stepAndCheck(planner);
+		assertTrue(planner.isFinished(a));
+		assertTrue(planner.isFinished(b));
+	}
+
+	@Test
+	public void testManyAgents() {
+		Random random = new Random(25);
+		int size = 128;
+		SimplePathGrid grid = new SimplePathGrid(size, size);
+		for (int n = 0; n < size * size / 10; n++)
+			grid.setGrid(random.nextInt(size), random.nextInt(size), true);
+		CooperativePlanner planner = new CooperativePlanner(grid);
+		ConnectivityIndex index = new ConnectivityIndex(grid);
+		int agents = 0;
+		while (agents < 800) {
+			int x = random.nextInt(size), y = random.nextInt(size);
+			int gx = random.nextInt(size), gy = random.nextInt(size);
+			if (!planner.isFree(x, y) || grid.getGrid(gx, gy) || !index.isReachable(x, y, gx, gy))
+				continue;
+			planner.addAgent(x, y, gx, gy);
+			agents++;
+		}
+		int t = 0;
+		for (; t < 1000 && !allFinished(planner); t++)
+			stepAndCheck(planner);
+		assertTrue(allFinished(planner));
+		assertTrue(planner.getReplans() > agents);
+	}
+
+	@Test
+	public void testAddAgentChecksWindow() {
+		CooperativePlanner planner = new CooperativePlanner(new SimplePathGrid(6, 1));
+		planner.addAgent(0, 0, 5, 0);
+		// the first agent has claimed (3, 0) three ticks from now.
+		assertFalse(planner.isFree(3, 0));
+		try {
+			planner.addAgent(3, 0, 0, 0);
+			fail("added an agent in the way of another");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDenseCrowd() {
+		// so many agents that plans often run out short of their goals.
+		for (int seed = 0; seed < 30; seed++) {
+			Random random = new Random(seed);
+			int size = 24 + random.nextInt(21);
+			SimplePathGrid grid = new SimplePathGrid(size, size);
+			for (int n = 0; n < size * size / 10; n++)
+				grid.setGrid(random.nextInt(size), random.nextInt(size), true);
+			CooperativePlanner planner = new CooperativePlanner(grid, 4 + random.nextInt(13), 64 + random.nextInt(512));
+			ConnectivityIndex index = new ConnectivityIndex(grid);
+			int crowd = (int) (size * size * (0.2 + random.nextDouble() * 0.4));
+			addAgents(planner, index, random, crowd);
+			for (int t = 0; t < 100; t++) {
+				addAgents(planner, index, random, 3);
+				stepAndCheck(planner);
+			}
+			int finished = 0;
+			for (int i = 0; i < planner.getAgentCount(); i++)
+				if (planner.isFinished(i))
+					finished++;
+			assertTrue("seed " + seed, finished > 0);
+		}
+	}
+
+	/** Tries n times to add an agent at a random free cell. */
+	static void addAgents(CooperativePlanner planner, ConnectivityIndex index, Random random, int n) {
+		int size = planner.getGrid().getWidth();
+		for (int i = 0; i < n; i++) {
+			int x = random.nextInt(size), y = random.nextInt(size);
+			int gx = random.nextInt(size), gy = random.nextInt(size);
+			if (planner.isFree(x, y) && !planner.getGrid().getGrid(gx, gy) && index.isReachable(x, y, gx, gy))
+				planner.addAgent(x, y, gx, gy);
+		}
+	}
+
+	static boolean allFinished(CooperativePlanner planner) {
+		for (int i = 0; i < planner.getAgentCount(); i++)
+			if (!planner.isFinished(i))
+				return false;
+		return true;
+	}
+
+	/** Steps, checking that no two agents share or swap cells. */
+	static void stepAndCheck(CooperativePlanner planner) {
+		PathGrid grid = planner.getGrid();
+		int w = grid.getWidth();
+		int n = planner.getAgentCount();
+		int[] before = new int[n];
+		for (int i = 0; i < n; i++)
+			before[i] = planner.getY(i) * w + planner.getX(i);
+		planner.step();
+		int[] at = new int[w * grid.getHeight()];
+		Arrays.fill(at, -1);
+		for (int i = 0; i < n; i++) {
+			if (planner.isFinished(i))
+				continue;
+			int x = planner.getX(i), y = planner.getY(i);
+			int cell = y * w + x;
+			assertFalse(grid.getGrid(x, y));
+			assertThat(Math.abs(x - before[i] % w) + Math.abs(y - before[i] / w) <= 1, is(true));
+			assertThat("agents " + at[cell] + " and " + i + " at " + x + "," + y, at[cell], is(-1));
+			at[cell] = i;
+		}
+		for (int i = 0; i < n; i++) {
+			if (planner.isFinished(i) || before[i] == planner.getY(i) * w + planner.getX(i))
+				continue;
+			int j = at[before[i]];
+			assertTrue("agents " + i + " and " + j + " swap", j < 0 || before[j] != planner.getY(i) * w + planner.getX(i));
+		}
+	}
+
+}
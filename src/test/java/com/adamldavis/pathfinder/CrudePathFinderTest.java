@@ -0,0 +1,53 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CrudePathFinderTest {
+
+	@Test
+	public void testCompactFindsShortestOnSmallGrids() {
+		CrudePathFinder classic = new CrudePathFinder();
+		CrudePathFinder compact = new CrudePathFinder();
+		compact.setCompact(true);
+		Random random = new Random(20);
+		for (int n = 0; n < 300; n++) {
+			int w = 2 + random.nextInt(7), h = 2 + random.nextInt(7);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, 0.25);
+			int x1 = random.nextInt(w), y1 = random.nextInt(h);
+			int x2 = random.nextInt(w), y2 = random.nextInt(h);
+			int expected = PathChecker.shortest(grid, x1, y1, x2, y2);
+			int[] path = compact.findPath(grid, x1, y1, x2, y2);
+			int[] old = classic.findPath(grid, x1, y1, x2, y2);
+			if (expected < 0) {
+				assertTrue(path == null);
+			} else {
+				assertNotNull(path);
+				PathChecker.assertValid(grid, x1, y1, x2, y2, path);
+				assertThat(path.length, is(expected));
+				if (old != null)
+					assertTrue(path.length <= old.length);
+			}
+		}
+	}
+
+	@Test
+	public void testCompactOnLargeGrid() {
+		PathGrid grid = new BitPathGrid(2000, 2000);
+		for (int y = 995; y < 1005; y++)
+			grid.setGrid(1000, y, true);
+		CrudePathFinder compact = new CrudePathFinder(Integer.MAX_VALUE);
+		compact.setCompact(true);
+		int[] path = compact.findPath(grid, 990, 1000, 1010, 1000);
+		assertNotNull(path);
+		PathChecker.assertValid(grid, 990, 1000, 1010, 1000, path);
+		assertThat(path.length, is(PathChecker.shortest(grid, 990, 1000, 1010, 1000)));
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DStarLitePlannerTest {
+
+	@Test
+	public void testReplansAfterChanges() {
+		Random random = new Random(9);
+		for (int n = 0; n < 20; n++) {
+			int w = 10 + random.nextInt(50);
+			int h = 10 + random.nextInt(50);
+			ObservablePathGrid grid = new ObservablePathGrid(BitPathGridTest.randomGrid(w, h, 0.25));
+			int x = random.nextInt(w), y = random.nextInt(h);
+			int x2 = random.nextInt(w), y2 = random.nextInt(h);
+			DStarLitePlanner planner = new DStarLitePlanner(grid, x, y, x2, y2);
+			for (int round = 0; round < 30; round++) {
+				int[] path = planner.plan();
+				int shortest = PathChecker.shortest(grid, x, y, x2, y2);
+				assertThat(path == null, is(shortest < 0));
+				if (path != null) {
+					assertThat(path.length, is(shortest));
+					PathChecker.assertValid(grid, x, y, x2, y2, path);
+					if (path.length > 0) { // take a step
+						x += PathFinder.DX[path[0]];
+						y += PathFinder.DY[path[0]];
+						planner.moveStart(x, y);
+					}
+				}
+				for (int i = 0; i < 5; i++) {
+					int cx = random.nextInt(w), cy = random.nextInt(h);
+					if ((cx != x || cy != y) && (cx != x2 || cy != y2))
+						grid.setGrid(cx, cy, random.nextDouble() < 0.3);
+				}
+			}
+			planner.dispose();
+		}
+	}
+
+	@Test
+	public void testRepairIsCheaperThanFirstPlan() {
+		ObservablePathGrid grid = new ObservablePathGrid(new BitPathGrid(200, 200));
+		DStarLitePlanner planner = new DStarLitePlanner(grid, 0, 0, 199, 199);
+		assertThat(planner.plan().length, is(398));
+		int first = planner.getExpansions();
+		grid.setGrid(198, 199, true);
+		assertThat(planner.plan().length, is(398));
+		assertTrue(planner.getExpansions() * 10 < first);
+	}
+}
@@ -0,0 +1,89 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DialPathFinderTest {
+
+	DialPathFinder finder = new DialPathFinder();
+
+	@Test
+	public void testShortestOnPlainGrids() {
+		PathChecker.assertShortest(finder, 300, 0.1);
+		PathChecker.assertShortest(finder, 300, 0.35, true);
+	}
+
+	@Test
+	public void testGoesAroundMud() {
+		ByteCostGrid grid = new ByteCostGrid(20, 10);
+		for (int x = 5; x < 15; x++)
+			for (int y = 0; y < 9; y++)
+				grid.setCost(x, y, 9);
+		WeightedPath path = finder.findWeightedPath(grid, 0, 0, 19, 0);
+		assertThat(path.getCost(), is(37L));
+		assertThat(path.getPath().length, is(37));
+		assertThat(WeightedPath.getCost(grid, 0, 0, path.getPath()), is(37L));
+	}
+
+	@Test
+	public void testCheapestOnRandomCosts() {
+		Random random = new Random(24);
+		for (int n = 0; n < 200; n++) {
+			int w = 2 + random.nextInt(60), h = 2 + random.nextInt(60);
+			ByteCostGrid grid = new ByteCostGrid(w, h);
+			for (int x = 0; x < w; x++)
+				for (int y = 0; y < h; y++)
+					grid.setCost(x, y, random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(random.nextBoolean() ? 3 : 255));
+			int x1 = random.nextInt(w), y1 = random.nextInt(h);
+			int x2 = random.nextInt(w), y2 = random.nextInt(h);
+			long expected = cheapest(grid, x1, y1, x2, y2);
+			WeightedPath path = finder.findWeightedPath(grid, x1, y1, x2, y2);
+			if (expected < 0) {
+				assertTrue(path == null);
+				continue;
+			}
+			assertNotNull(path);
+			PathChecker.assertValid(grid, x1, y1, x2, y2, path.getPath());
+			assertThat(path.getCost(), is(expected));
+			assertThat(WeightedPath.getCost(grid, x1, y1, path.getPath()), is(expected));
+		}
+	}
+
+	/** Dijkstra with a PriorityQueue, or -1 if there is no path. */
+	static long cheapest(CostGrid grid, int x1, int y1, int x2, int y2) {
+		if (grid.getGrid(x1, y1) || grid.getGrid(x2, y2))
+			return -1;
+		int w = grid.getWidth();
+		long[] dist = new long[w * grid.getHeight()];
+		Arrays.fill(dist, Long.MAX_VALUE);
+		PriorityQueue<long[]> queue = new PriorityQueue<long[]>(11, (a, b) -> Long.compare(a[0], b[0]));
+		dist[y1 * w + x1] = 0;
+		queue.add(new long[] { 0, y1 * w + x1 });
+		while (!queue.isEmpty()) {
+			long[] e = queue.poll();
+			int cur = (int) e[1];
+			if (e[0] > dist[cur])
+				continue;
+			if (cur == y2 * w + x2)
+				return e[0];
+			for (int dir = 0; dir < 4; dir++) {
+				int nx = cur % w + PathFinder.DX[dir], ny = cur / w + PathFinder.DY[dir];
+				int c = grid.getCost(nx, ny);
+				if (c > 0 && e[0] + c < dist[ny * w + nx]) {
+					dist[ny * w + nx] = e[0] + c;
+					queue.add(new long[] { e[0] + c, ny * w + nx });
+				}
+			}
+		}
+		return -1;
+	}
+
+}
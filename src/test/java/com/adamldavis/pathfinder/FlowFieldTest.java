@@ -0,0 +1,45 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class FlowFieldTest {
+
+	@Test
+	public void testDistancesAreShortest() {
+		PathGrid grid = BitPathGridTest.randomGrid(40, 30, 0.3);
+		grid.setGrid(20, 15, false);
+		FlowField field = new FlowField(grid, 20, 15);
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 30; y++) {
+				int expected = PathChecker.shortest(grid, x, y, 20, 15);
+				assertThat(field.getDistance(x, y), is(expected));
+				int[] path = field.findPath(x, y);
+				if (expected < 0) {
+					assertThat(path, is(nullValue()));
+				} else {
+					assertThat(path.length, is(expected));
+					PathChecker.assertValid(grid, x, y, 20, 15, path);
+				}
+			}
+		}
+		assertThat(field.getDirection(20, 15), is(FlowField.NONE));
+	}
+
+	@Test
+	public void testRebuild() {
+		PathGrid grid = new BitPathGrid(300, 300);
+		FlowField field = new FlowField(grid, 0, 0);
+		assertThat(field.getDistance(299, 299), is(598));
+		for (int y = 0; y < 300; y++)
+			grid.setGrid(150, y, true);
+		field.rebuild();
+		assertThat(field.isReachable(299, 299), is(false));
+		assertThat(field.getDistance(149, 299), is(448));
+		field.setGoal(299, 299);
+		assertThat(field.getDistance(151, 0), is(447));
+	}
+}
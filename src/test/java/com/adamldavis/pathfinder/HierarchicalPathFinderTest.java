@@ -0,0 +1,85 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HierarchicalPathFinderTest {
+
+	@Test
+	public void testFindsValidPaths() {
+		Random random = new Random(11);
+		for (int n = 0; n < 60; n++) {
+			int w = 5 + random.nextInt(90);
+			int h = 5 + random.nextInt(90);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, 0.1 + random.nextDouble() * 0.3);
+			HierarchicalPathFinder finder = new HierarchicalPathFinder(4 + random.nextInt(14));
+			for (int q = 0; q < 20; q++)
+				assertQuery(finder, grid, random.nextInt(w), random.nextInt(h), random.nextInt(w),
+						random.nextInt(h));
+		}
+	}
+
+	@Test
+	public void testOpenGridIsShortest() {
+		HierarchicalPathFinder finder = new HierarchicalPathFinder();
+		PathGrid grid = new BitPathGrid(200, 150);
+		assertThat(finder.findPath(grid, 3, 7, 190, 140).length, is(187 + 133));
+	}
+
+	@Test
+	public void testIncrementalRebuild() {
+		Random random = new Random(5);
+		ObservablePathGrid grid = new ObservablePathGrid(BitPathGridTest.randomGrid(80, 60, 0.25));
+		HierarchicalPathFinder finder = new HierarchicalPathFinder(10);
+		for (int round = 0; round < 40; round++) {
+			for (int i = 0; i < 15; i++)
+				grid.setGrid(random.nextInt(80), random.nextInt(60), random.nextDouble() < 0.25);
+			HierarchicalPathFinder fresh = new HierarchicalPathFinder(10);
+			for (int q = 0; q < 10; q++) {
+				int x1 = random.nextInt(80), y1 = random.nextInt(60);
+				int x2 = random.nextInt(80), y2 = random.nextInt(60);
+				int[] path = assertQuery(finder, grid, x1, y1, x2, y2);
+				assertThat(path, is(fresh.findPath(grid, x1, y1, x2, y2)));
+			}
+		}
+	}
+
+	@Test
+	public void testRouteIsLazy() {
+		HierarchicalPathFinder finder = new HierarchicalPathFinder(8);
+		PathGrid grid = new BitPathGrid(AntPathFinderTest.makeGrid(64, 64));
+		HierarchicalPathFinder.Route route = finder.findRoute(grid, 0, 0, 63, 63);
+		assertThat(route.length(), is(126));
+		PathBuffer out = new PathBuffer();
+		assertThat(route.fill(out, 5), is(5));
+		assertThat(out.toArray(), is(new int[] { 1, 1, 1, 1, 1 }));
+		assertThat(route.getRead(), is(5));
+	}
+
+	@Test
+	public void testRouteOutlivesQueryOnOtherGrid() {
+		HierarchicalPathFinder finder = new HierarchicalPathFinder(8);
+		PathGrid grid = new BitPathGrid(AntPathFinderTest.makeGrid(64, 64));
+		HierarchicalPathFinder.Route route = finder.findRoute(grid, 0, 0, 63, 63);
+		finder.findPath(new BitPathGrid(100, 30), 0, 0, 99, 29);
+		PathBuffer out = new PathBuffer();
+		route.fill(out, route.length());
+		PathChecker.assertValid(grid, 0, 0, 63, 63, out.toArray());
+	}
+
+	static int[] assertQuery(PathFinder finder, PathGrid grid, int x1, int y1, int x2, int y2) {
+		int shortest = PathChecker.shortest(grid, x1, y1, x2, y2);
+		int[] path = finder.findPath(grid, x1, y1, x2, y2);
+		assertThat(path == null, is(shortest < 0));
+		if (path != null) {
+			PathChecker.assertValid(grid, x1, y1, x2, y2, path);
+			assertTrue(path.length >= shortest);
+		}
+		return path;
+	}
+}
@@ -0,0 +1,70 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.theories.DataPoint;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+@RunWith(Theories.class)
+public class JumpPointPathFinderTest {
+
+	JumpPointPathFinder finder;
+
+	@Before
+	public void setUp() throws Exception {
+		finder = new JumpPointPathFinder();
+	}
+
+	@DataPoint
+	public static final PathGrid grid = AntPathFinderTest.makeGrid(12, 12);
+	@DataPoint
+	public static final PathGrid grid32 = new BitPathGrid(AntPathFinderTest.makeGrid(32, 32));
+	@DataPoint
+	public static final PathGrid grid64 = new BitPathGrid(AntPathFinderTest.makeGrid(130, 64));
+	@DataPoint
+	public static final PathGrid open = new BitPathGrid(200, 70);
+
+	@Theory
+	public void testFindPath(PathGrid grid) {
+		int x2 = grid.getWidth() - 1;
+		int y2 = grid.getHeight() - 1;
+		int[] path = finder.findPath(grid, 0, 0, x2, y2);
+		assertNotNull(path);
+		assertThat(path.length, is(x2 + y2));
+		PathChecker.assertValid(grid, 0, 0, x2, y2, path);
+	}
+
+	@Test
+	public void testShortest() {
+		PathChecker.assertShortest(finder, 300, 0.1);
+		PathChecker.assertShortest(finder, 300, 0.3);
+		PathChecker.assertShortest(finder, 300, 0.45);
+	}
+
+	@Test
+	public void testShortestPacked() {
+		PathChecker.assertShortest(finder, 300, 0.1, true);
+		PathChecker.assertShortest(finder, 300, 0.3, true);
+		PathChecker.assertShortest(finder, 300, 0.45, true);
+	}
+
+	@Test
+	public void testPackedSameAsSimple() {
+		for (int n = 0; n < 50; n++) {
+			SimplePathGrid simple = BitPathGridTest.randomGrid(60 + n * 3, 20 + n, 0.25);
+			int x2 = simple.getWidth() - 1;
+			int y2 = simple.getHeight() - 1;
+			simple.setGrid(0, 0, false);
+			simple.setGrid(x2, y2, false);
+			int[] expected = finder.findPath(simple, 0, 0, x2, y2);
+			int[] actual = finder.findPath(new BitPathGrid(simple), 0, 0, x2, y2);
+			assertThat(actual, is(expected));
+		}
+	}
+}
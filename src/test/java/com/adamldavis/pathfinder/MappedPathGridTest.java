@@ -0,0 +1,77 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedPathGridTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testConvertAndReopen() throws IOException {
+		File file = new File(folder.getRoot(), "map.grid");
+		SimplePathGrid simple = BitPathGridTest.randomGrid(150, 77, 0.3);
+		MappedPathGrid mapped = MappedPathGrid.create(file.toPath(), simple);
+		assertSame(simple, mapped);
+		mapped.close();
+
+		mapped = MappedPathGrid.open(file.toPath(), false);
+		assertThat(mapped.getWidth(), is(150));
+		assertThat(mapped.getHeight(), is(77));
+		assertSame(simple, mapped);
+		assertSame(simple, mapped.copy());
+		assertThat(mapped.getGrid(-1, 0), is(true));
+		assertThat(mapped.getGrid(150, 0), is(true));
+		mapped.close();
+	}
+
+	@Test
+	public void testSetGridIsSaved() throws IOException {
+		File file = new File(folder.getRoot(), "empty.grid");
+		MappedPathGrid mapped = MappedPathGrid.create(file.toPath(), 70, 10);
+		mapped.setGrid(65, 3, true);
+		mapped.setGrid(0, 9, true);
+		mapped.setGrid(0, 9, false);
+		mapped.close();
+
+		mapped = MappedPathGrid.open(file.toPath(), true);
+		assertThat(mapped.getGrid(65, 3), is(true));
+		assertThat(mapped.getGrid(0, 9), is(false));
+		int[] path = new AStarPathFinder().findPath(mapped, 0, 0, 69, 9);
+		assertThat(path.length, is(69 + 9));
+		mapped.close();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() throws IOException {
+		File file = new File(folder.getRoot(), "ro.grid");
+		MappedPathGrid.create(file.toPath(), 10, 10).close();
+		MappedPathGrid mapped = MappedPathGrid.open(file.toPath(), false);
+		try {
+			mapped.setGrid(1, 1, true);
+		} finally {
+			mapped.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAGridFile() throws IOException {
+		File file = folder.newFile("other.txt");
+		MappedPathGrid.open(file.toPath(), false);
+	}
+
+	private static void assertSame(PathGrid expected, PathGrid actual) {
+		for (int x = 0; x < expected.getWidth(); x++)
+			for (int y = 0; y < expected.getHeight(); y++)
+				assertThat(actual.getGrid(x, y), is(expected.getGrid(x, y)));
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.adamldavis.pathfinder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Helpers shared by the path-finder tests.
+ */
+public class PathChecker {
+
+	/**
+	 * Asserts that the path only steps on free cells and ends at the goal.
+	 */
+	public static void assertValid(PathGrid grid, int x1, int y1, int x2, int y2, int[] path) {
+		int x = x1;
+		int y = y1;
+		for (int dir : path) {
+			x += PathFinder.DX[dir];
+			y += PathFinder.DY[dir];
+			assertFalse("blocked at " + x + "," + y, grid.getGrid(x, y));
+		}
+		if (x != x2 || y != y2)
+			fail("ended at " + x + "," + y + " not " + x2 + "," + y2);
+	}
+
+	/**
+	 * Length of the shortest path found by a breadth-first search, or -1 if
+	 * there is none.
+	 */
+	public static int shortest(PathGrid grid, int x1, int y1, int x2, int y2) {
+		if (grid.getGrid(x1, y1) || grid.getGrid(x2, y2))
+			return -1;
+		int w = grid.getWidth();
+		int[] dist = new int[w * grid.getHeight()];
+		java.util.Arrays.fill(dist, -1);
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		dist[y1 * w + x1] = 0;
+		queue.add(y1 * w + x1);
+		while (!queue.isEmpty()) {
+			int cur = queue.poll();
+			int x = cur % w;
+			int y = cur / w;
+			if (x == x2 && y == y2)
+				return dist[cur];
+			for (int dir = 0; dir < 4; dir++) {
+				int nx = x + PathFinder.DX[dir];
+				int ny = y + PathFinder.DY[dir];
+				if (!grid.getGrid(nx, ny) && dist[ny * w + nx] < 0) {
+					dist[ny * w + nx] = dist[cur] + 1;
+					queue.add(ny * w + nx);
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs the finder over seeded random grids and asserts that it finds a
+	 * valid shortest path whenever one exists.
+	 */
+	public static void assertShortest(PathFinder finder, int grids, double density) {
+		assertShortest(finder, grids, density, false);
+	}
+
+	/**
+	 * Same as assertShortest(finder, grids, density) but can use BitPathGrids.
+	 */
+	public static void assertShortest(PathFinder finder, int grids, double density, boolean packed) {
+		Random random = new Random(42);
+		for (int n = 0; n < grids; n++) {
+			int w = 2 + random.nextInt(packed ? 150 : 40);
+			int h = 2 + random.nextInt(40);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, density);
+			if (packed)
+				grid = new BitPathGrid(grid);
+			int x1 = random.nextInt(w);
+			int y1 = random.nextInt(h);
+			int x2 = random.nextInt(w);
+			int y2 = random.nextInt(h);
+			int expected = shortest(grid, x1, y1, x2, y2);
+			int[] path = finder.findPath(grid, x1, y1, x2, y2);
+			if (expected < 0) {
+				assertTrue("found a path where there is none", path == null);
+			} else {
+				if (path == null)
+					fail("no path in grid " + n + " from " + x1 + "," + y1 + " to " + x2 + "," + y2 + "\n" + grid);
+				assertValid(grid, x1, y1, x2, y2, path);
+				if (path.length != expected)
+					fail("length " + path.length + " not " + expected + " in grid " + n + "\n" + grid);
+			}
+		}
+	}
+}
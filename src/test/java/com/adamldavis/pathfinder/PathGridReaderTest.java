@@ -0,0 +1,125 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PathGridReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(16);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PathGridWriter writer = new PathGridWriter(Channels.newChannel(bytes));
+		PathGrid[] grids = new PathGrid[40];
+		for (int n = 0; n < grids.length; n++) {
+			int w = random.nextInt(300), h = 1 + random.nextInt(50);
+			PathGrid grid = w == 0 ? new BitPathGrid(0, h) : BitPathGridTest.randomGrid(w, h, random.nextDouble());
+			if (n % 3 == 0 && w > 0)
+				grid = new BitPathGrid(grid);
+			grids[n] = grid;
+			writer.write(grid);
+		}
+		PathGridReader reader = new PathGridReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+		for (PathGrid grid : grids)
+			assertThat(reader.read().toString(), is(grid.toString()));
+	}
+
+	@Test
+	public void testRoundTripAcrossBufferBoundary() throws IOException {
+		// rows of 128 cells take 17 bytes; 3854 rows put the checksum across
+		// the 64 KiB read buffer.
+		File file = new File(folder.getRoot(), "edge.pgr");
+		boolean straddled = false;
+		for (int h = 3848; h <= 3860; h++) {
+			SimplePathGrid grid = BitPathGridTest.randomGrid(128, h, 0.5);
+			PathGridWriter.save(grid, file.toPath());
+			straddled |= file.length() > 65536 && file.length() < 65540;
+			assertThat(PathGridReader.load(file.toPath()).toString(), is(grid.toString()));
+		}
+		assertTrue(straddled);
+	}
+
+	@Test
+	public void testMostlyEmptyGridIsSmall() throws IOException {
+		File file = new File(folder.getRoot(), "world.pgr");
+		BitPathGrid grid = new BitPathGrid(4000, 4000);
+		for (int i = 0; i < 4000; i++)
+			grid.setGrid(i, i, true);
+		PathGridWriter.save(grid, file.toPath());
+		assertTrue(file.length() < 4000 * 8);
+		BitPathGrid copy = PathGridReader.load(file.toPath());
+		for (int i = 0; i < 4000; i++) {
+			assertThat(copy.getGrid(i, i), is(true));
+			assertThat(copy.getGrid(i, 3999 - i), is(i == 3999 - i));
+		}
+	}
+
+	@Test
+	public void testChecksum() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new PathGridWriter(Channels.newChannel(bytes)).write(BitPathGridTest.randomGrid(100, 100, 0.5));
+		byte[] data = bytes.toByteArray();
+		data[data.length / 2] ^= 4;
+		try {
+			new PathGridReader(Channels.newChannel(new ByteArrayInputStream(data))).read();
+			fail("read a damaged grid");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCorruptHeaderAndRuns() {
+		// a negative run length, whose varint sets the sign bit.
+		assertCorrupt(header(2, 1).put((byte) PathGridWriter.ROW_RUNS).put(new byte[] { -128, -128, -128, -128, 8 }));
+		// a size whose words do not fit in an array.
+		assertCorrupt(header(Integer.MAX_VALUE, 1 << 20).put((byte) PathGridWriter.ROW_WORDS).putLong(0));
+	}
+
+	static ByteBuffer header(int width, int height) {
+		ByteBuffer buf = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+		return buf.putInt(PathGridWriter.MAGIC).put((byte) PathGridWriter.VERSION).put((byte) 0).putShort((short) 0)
+				.putInt(width).putInt(height);
+	}
+
+	static void assertCorrupt(ByteBuffer buf) {
+		byte[] data = new byte[buf.position()];
+		buf.flip();
+		buf.get(data);
+		try {
+			new PathGridReader(Channels.newChannel(new ByteArrayInputStream(data))).read();
+			fail("read a corrupt grid");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRender() throws IOException {
+		SimplePathGrid grid = BitPathGridTest.randomGrid(70, 30, 0.3);
+		StringWriter out = new StringWriter();
+		PathGridWriter.render(grid, out);
+		assertThat(out.toString(), is(grid.toString()));
+		assertThat(new BitPathGrid(grid).toString(), is(grid.toString()));
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.adamldavis.pathfinder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RandomPathFinderTest {
+
+	@Test
+	public void testSameSeedSamePath() {
+		RandomPathFinder finder = new RandomPathFinder();
+		finder.setSeed(21);
+		PathGrid grid = BitPathGridTest.randomGrid(40, 40, 0.2);
+		int[] path = finder.findPath(grid, 0, 0, 39, 39);
+		assertArrayEquals(path, finder.findPath(grid, 0, 0, 39, 39));
+	}
+
+	@Test
+	public void testParallelDoesNotDependOnThreads() {
+		Random random = new Random(21);
+		RandomPathFinder finder = new RandomPathFinder();
+		finder.setSeed(7);
+		for (int n = 0; n < 20; n++) {
+			int w = 10 + random.nextInt(50), h = 10 + random.nextInt(50);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, 0.2);
+			int x1 = random.nextInt(w), y1 = random.nextInt(h);
+			int x2 = random.nextInt(w), y2 = random.nextInt(h);
+			finder.setParallelism(2);
+			int[] expected = finder.findPath(grid, x1, y1, x2, y2);
+			if (expected != null)
+				PathChecker.assertValid(grid, x1, y1, x2, y2, expected);
+			for (int threads : new int[] { 1, 3, 8, 2 }) {
+				finder.setParallelism(threads);
+				assertArrayEquals(expected, finder.findPath(grid, x1, y1, x2, y2));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelFindsPath() {
+		RandomPathFinder finder = new RandomPathFinder();
+		finder.setParallelism(4);
+		finder.setStatsEnabled(true);
+		PathGrid grid = AntPathFinderTest.makeGrid(32, 32);
+		int[] path = finder.findPath(grid, 0, 0, 31, 31);
+		assertNotNull(path);
+		PathChecker.assertValid(grid, 0, 0, 31, 31, path);
+		assertTrue(finder.getLastStats().getRetries() > 0);
+	}
+
+}
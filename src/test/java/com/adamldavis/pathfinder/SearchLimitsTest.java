@@ -0,0 +1,94 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SearchLimitsTest {
+
+	PathGrid maze = new BitPathGrid(AntPathFinderTest.makeGrid(130, 64));
+
+	@Test
+	public void testNoLimitIsComplete() {
+		PathFinder[] finders = { new AStarPathFinder(), new JumpPointPathFinder(), new BidirectionalPathFinder() };
+		for (PathFinder finder : finders) {
+			PathResult result = finder.findPath(maze, 0, 0, 129, 63, new SearchLimits());
+			assertTrue(result.isComplete());
+			assertFalse(result.isStopped());
+			assertThat(result.getPath().length, is(PathChecker.shortest(maze, 0, 0, 129, 63)));
+		}
+	}
+
+	@Test
+	public void testBudgetGivesPartialPath() {
+		PathFinder[] finders = { new AStarPathFinder(), new JumpPointPathFinder(), new BidirectionalPathFinder(),
+				new AntPathFinder(), new HierarchicalPathFinder(8), new ThetaStarPathFinder() };
+		for (PathFinder finder : finders) {
+			finder.setStatsEnabled(true);
+			PathResult result = finder.findPath(maze, 0, 0, 129, 63, new SearchLimits(2));
+			assertTrue(finder + " " + result, result.isPartial());
+			assertTrue(result.isStopped());
+			assertTrue(finder.getLastStats().getExpanded() <= 2);
+			int x = 0, y = 0;
+			for (int dir : result.getPath()) {
+				x += PathFinder.DX[dir];
+				y += PathFinder.DY[dir];
+				assertFalse(maze.getGrid(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testDeadline() {
+		PathGrid grid = new BitPathGrid(2000, 2000);
+		for (int y = 1; y < 2000; y++)
+			grid.setGrid(1000, y, true);
+		BidirectionalPathFinder finder = new BidirectionalPathFinder();
+		finder.setStatsEnabled(true);
+		PathResult result = finder.findPath(grid, 0, 1999, 1999, 1999, new SearchLimits(1, TimeUnit.MILLISECONDS));
+		assertTrue(result.isStopped());
+		// a whole search expands nearly every cell.
+		assertTrue(finder.getLastStats().getExpanded() < 1000000);
+	}
+
+	@Test
+	public void testCancel() {
+		SearchLimits limits = new SearchLimits();
+		limits.cancel();
+		PathResult result = new AStarPathFinder().findPath(maze, 0, 0, 129, 63, limits);
+		assertTrue(result.isStopped());
+		assertThat(result.getPath().length, is(0));
+		result = new HierarchicalPathFinder().findPath(maze, 0, 0, 129, 63, limits);
+		assertTrue(result.isStopped());
+		assertThat(result.getPath().length, is(0));
+	}
+
+	@Test
+	public void testCachingPassesLimitsOn() {
+		CachingPathFinder cache = new CachingPathFinder(new AStarPathFinder());
+		PathResult result = cache.findPath(maze, 0, 0, 129, 63, new SearchLimits(2));
+		assertTrue(result.isPartial());
+		// the partial path is not remembered.
+		result = cache.findPath(maze, 0, 0, 129, 63, new SearchLimits());
+		assertTrue(result.isComplete());
+		assertThat(cache.getMisses(), is(2L));
+		result = cache.findPath(maze, 0, 0, 129, 63, new SearchLimits(2));
+		assertTrue(result.isComplete());
+		assertThat(cache.getHits(), is(1L));
+	}
+
+	@Test
+	public void testCrudeGivesBestComplete() {
+		PathGrid grid = AntPathFinderTest.makeGrid(12, 12);
+		PathResult result = new CrudePathFinder().findPath(grid, 0, 0, 11, 11, new SearchLimits(200));
+		assertFalse(result.isPartial());
+		if (result.getPath() != null)
+			PathChecker.assertValid(grid, 0, 0, 11, 11, result.getPath());
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SearchStatsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	PathGrid grid = AntPathFinderTest.makeGrid(32, 32);
+
+	@Test
+	public void testStats() {
+		PathFinder[] finders = { new AStarPathFinder(), new JumpPointPathFinder(), new BidirectionalPathFinder(),
+				new HierarchicalPathFinder(), new AntPathFinder(), new CrudePathFinder(), new RandomPathFinder() };
+		for (PathFinder finder : finders) {
+			finder.setStatsEnabled(true);
+			int[] path = finder.findPath(grid, 0, 0, 31, 31);
+			// RandomPathFinder can miss the only corridor now and then.
+			for (int i = 0; path == null && i < 50; i++)
+				path = finder.findPath(grid, 0, 0, 31, 31);
+			SearchStats stats = finder.getLastStats();
+			assertThat(stats.getLength(), is(path.length));
+			assertTrue(finder + " " + stats, stats.getExpanded() > 0);
+			assertTrue(finder + " " + stats, stats.getPeakFrontier() > 0);
+			assertTrue(stats.getGenerated() >= stats.getPeakFrontier());
+			assertTrue(stats.getNanos() > 0);
+		}
+	}
+
+	@Test
+	public void testListener() {
+		final int[] count = new int[2];
+		AStarPathFinder finder = new AStarPathFinder();
+		finder.setListener(new SearchListener() {
+			public void expanded(PathFinder finder, int x, int y) {
+				count[0]++;
+			}
+
+			public void finished(PathFinder finder, SearchStats stats) {
+				count[1]++;
+				assertThat((long) count[0], is(stats.getExpanded()));
+			}
+		});
+		finder.findPath(grid, 0, 0, 31, 31);
+		assertThat(count[1], is(1));
+		assertTrue(count[0] > 0);
+	}
+
+	@Test
+	public void testFlightRecorderEvent() throws Exception {
+		File file = new File(folder.getRoot(), "search.jfr");
+		AStarPathFinder finder = new AStarPathFinder();
+		Recording recording = new Recording();
+		recording.enable("com.adamldavis.pathfinder.Search");
+		recording.start();
+		int[] path = finder.findPath(grid, 0, 0, 31, 31);
+		recording.stop();
+		recording.dump(file.toPath());
+		recording.close();
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).getInt("length"), is(path.length));
+		assertThat(events.get(0).getString("finder"), is("AStarPathFinder"));
+		assertTrue(events.get(0).getLong("expanded") > 0);
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparsePathGridTest {
+
+	@Test
+	public void testSameAsBitPathGrid() {
+		Random random = new Random(15);
+		SparsePathGrid sparse = new SparsePathGrid(300, 200);
+		BitPathGrid bits = new BitPathGrid(300, 200);
+		for (int i = 0; i < 100000; i++) {
+			int x = random.nextInt(300), y = random.nextInt(200);
+			boolean yes = random.nextDouble() < 0.5;
+			sparse.setGrid(x, y, yes);
+			bits.setGrid(x, y, yes);
+		}
+		for (int x = -1; x <= 300; x++)
+			for (int y = -1; y <= 200; y++)
+				assertThat(sparse.getGrid(x, y), is(bits.getGrid(x, y)));
+	}
+
+	@Test
+	public void testUniformTilesTakeNoStorage() {
+		SparsePathGrid grid = new SparsePathGrid(1000000, 1000000);
+		grid.setGrid(999999, 999999, true);
+		assertThat(grid.getTileCount(), is(1));
+		grid.setGrid(999999, 999999, false);
+		assertThat(grid.getTileCount(), is(0));
+		for (int x = 64; x < 128; x++)
+			for (int y = 0; y < 64; y++)
+				grid.setGrid(x, y, true);
+		assertThat(grid.getTileCount(), is(1));
+		assertThat(grid.getGrid(100, 10), is(true));
+		grid.setGrid(100, 10, false);
+		assertThat(grid.getGrid(100, 10), is(false));
+		assertThat(grid.getGrid(101, 10), is(true));
+	}
+
+	@Test
+	public void testCopyOnWrite() {
+		SparsePathGrid grid = new SparsePathGrid(200, 200);
+		grid.setGrid(5, 5, true);
+		PathGrid copy = grid.copy();
+		copy.setGrid(6, 5, true);
+		grid.setGrid(5, 5, false);
+		assertThat(grid.getGrid(6, 5), is(false));
+		assertThat(copy.getGrid(5, 5), is(true));
+		assertThat(copy.getGrid(6, 5), is(true));
+	}
+
+	@Test
+	public void testFindPathInHugeWorld() {
+		SparsePathGrid grid = new SparsePathGrid(1000000, 1000000);
+		for (int y = 0; y < 10; y++)
+			grid.setGrid(500000, 400505 + y, true);
+		int[] path = new AntPathFinder().findPath(grid, 499000, 400500, 501000, 400500);
+		assertThat(path.length, is(2000));
+		PathChecker.assertValid(grid, 499000, 400500, 501000, 400500, path);
+	}
+
+	@Test
+	public void testFlatArrayFindersRejectHugeWorld() {
+		SparsePathGrid grid = new SparsePathGrid(1000000, 1000000);
+		PathFinder[] finders = { new AStarPathFinder(), new JumpPointPathFinder(), new BidirectionalPathFinder(),
+				new DialPathFinder(), new ThetaStarPathFinder(), new HierarchicalPathFinder() };
+		for (PathFinder finder : finders) {
+			try {
+				finder.findPath(grid, 499000, 400500, 501000, 400500);
+				fail(finder + " searched a grid too large for its arrays");
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("too large"));
+			}
+		}
+	}
+
+}
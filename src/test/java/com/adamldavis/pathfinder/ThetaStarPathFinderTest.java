@@ -0,0 +1,71 @@
+package com.adamldavis.pathfinder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ThetaStarPathFinderTest {
+
+	ThetaStarPathFinder finder = new ThetaStarPathFinder();
+
+	@Test
+	public void testOpenGridIsOneLine() {
+		PathGrid grid = new BitPathGrid(300, 200);
+		int[] waypoints = finder.findWaypoints(grid, 3, 5, 290, 170);
+		assertArrayEquals(new int[] { 3, 5, 290, 170 }, waypoints);
+		int[] path = finder.findPath(grid, 3, 5, 290, 170);
+		assertThat(path.length, is(287 + 165));
+		PathChecker.assertValid(grid, 3, 5, 290, 170, path);
+	}
+
+	@Test
+	public void testBendsAtCorners() {
+		PathGrid grid = AntPathFinderTest.makeGrid(130, 64);
+		int[] waypoints = finder.findWaypoints(grid, 0, 0, 129, 63);
+		assertArrayEquals(new int[] { 0, 0, 129, 0, 129, 63 }, waypoints);
+	}
+
+	@Test
+	public void testRandomGrids() {
+		Random random = new Random(23);
+		for (int n = 0; n < 300; n++) {
+			int w = 2 + random.nextInt(80), h = 2 + random.nextInt(80);
+			PathGrid grid = BitPathGridTest.randomGrid(w, h, random.nextDouble() * 0.4);
+			int x1 = random.nextInt(w), y1 = random.nextInt(h);
+			int x2 = random.nextInt(w), y2 = random.nextInt(h);
+			int shortest = PathChecker.shortest(grid, x1, y1, x2, y2);
+			int[] waypoints = finder.findWaypoints(grid, x1, y1, x2, y2);
+			if (shortest < 0) {
+				assertTrue(waypoints == null);
+				continue;
+			}
+			assertNotNull(waypoints);
+			for (int i = 2; i < waypoints.length; i += 2)
+				assertTrue(ThetaStarPathFinder.lineOfSight(grid, waypoints[i - 2], waypoints[i - 1], waypoints[i],
+						waypoints[i + 1]));
+			int[] path = finder.findPath(grid, x1, y1, x2, y2);
+			PathChecker.assertValid(grid, x1, y1, x2, y2, path);
+			assertThat(path.length, is(ThetaStarPathFinder.countSteps(waypoints)));
+		}
+	}
+
+	@Test
+	public void testLineOfSight() {
+		PathGrid grid = new BitPathGrid(10, 10);
+		grid.setGrid(5, 5, true);
+		assertFalse(ThetaStarPathFinder.lineOfSight(grid, 0, 0, 9, 9));
+		assertTrue(ThetaStarPathFinder.lineOfSight(grid, 0, 4, 9, 9));
+		grid.setGrid(1, 0, true);
+		// passes exactly through the corner of 1, 0.
+		assertFalse(ThetaStarPathFinder.lineOfSight(grid, 0, 0, 2, 2));
+		assertTrue(ThetaStarPathFinder.lineOfSight(grid, 0, 0, 0, 9));
+	}
+
+}